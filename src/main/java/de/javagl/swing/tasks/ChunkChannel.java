@@ -0,0 +1,226 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A bounded buffer for the intermediate results that are published by
+ * a {@link SwingTask}. The results are collected in this buffer, and 
+ * passed to a consumer on the Event Dispatch Thread. When the buffer 
+ * is full, the {@link ChunkOverflowPolicy} determines how new results 
+ * are handled.
+ *
+ * @param <V> The type of the intermediate results
+ */
+class ChunkChannel<V>
+{
+    /**
+     * The maximum number of chunks in the buffer
+     */
+    private final int capacity;
+    
+    /**
+     * The {@link ChunkOverflowPolicy}
+     */
+    private final ChunkOverflowPolicy overflowPolicy;
+    
+    /**
+     * The consumer that will receive the chunks on the Event Dispatch Thread
+     */
+    private final Consumer<List<V>> consumer;
+    
+    /**
+     * The buffer of chunks, protected by the {@link #lock}
+     */
+    private final ArrayDeque<V> buffer;
+    
+    /**
+     * The lock protecting the {@link #buffer}
+     */
+    private final ReentrantLock lock;
+    
+    /**
+     * The condition that is signalled when the buffer was drained
+     */
+    private final Condition notFull;
+    
+    /**
+     * The number of chunks that are currently in the buffer
+     */
+    private volatile int size;
+    
+    /**
+     * Whether a {@link #flusher} is currently scheduled for being 
+     * executed on the Event Dispatch Thread
+     */
+    private final AtomicBoolean flushPending;
+    
+    /**
+     * The runnable that passes the buffered chunks to the consumer
+     */
+    private final Runnable flusher;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param capacity The capacity
+     * @param overflowPolicy The {@link ChunkOverflowPolicy}
+     * @param consumer The consumer for the chunks
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    ChunkChannel(int capacity, ChunkOverflowPolicy overflowPolicy, 
+        Consumer<List<V>> consumer)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The capacity must be positive, but is " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.consumer = consumer;
+        this.buffer = new ArrayDeque<V>();
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+        this.flushPending = new AtomicBoolean();
+        this.flusher = () -> flush();
+    }
+    
+    /**
+     * Put the given chunks into the buffer, handling an overflow according 
+     * to the {@link ChunkOverflowPolicy}, and make sure that they will be
+     * passed to the consumer on the Event Dispatch Thread.<br>
+     * <br>
+     * If the calling thread is interrupted while it is blocked, then the
+     * remaining chunks will be dropped, and the interrupted flag of the
+     * thread will be set.
+     * 
+     * @param chunks The chunks
+     */
+    void publish(V[] chunks)
+    {
+        boolean mayBlock = !SwingUtilities.isEventDispatchThread();
+        lock.lock();
+        try
+        {
+            for (V chunk : chunks)
+            {
+                if (overflowPolicy == ChunkOverflowPolicy.CONFLATE)
+                {
+                    buffer.clear();
+                }
+                else if (buffer.size() >= capacity)
+                {
+                    if (overflowPolicy == ChunkOverflowPolicy.DROP_OLDEST)
+                    {
+                        buffer.pollFirst();
+                    }
+                    else if (mayBlock)
+                    {
+                        requestFlush();
+                        while (buffer.size() >= capacity)
+                        {
+                            notFull.await();
+                        }
+                    }
+                }
+                buffer.addLast(chunk);
+                size = buffer.size();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        requestFlush();
+    }
+    
+    /**
+     * Returns the number of chunks that are currently waiting to be 
+     * passed to the consumer
+     * 
+     * @return The number of chunks
+     */
+    int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Make sure that the {@link #flusher} is scheduled to be executed
+     * on the Event Dispatch Thread, unless it is already pending
+     */
+    private void requestFlush()
+    {
+        if (flushPending.compareAndSet(false, true))
+        {
+            SwingUtilities.invokeLater(flusher);
+        }
+    }
+    
+    /**
+     * Pass all chunks from the buffer to the consumer. Only to be called
+     * on the Event Dispatch Thread.
+     */
+    private void flush()
+    {
+        flushPending.set(false);
+        List<V> chunks = null;
+        lock.lock();
+        try
+        {
+            if (!buffer.isEmpty())
+            {
+                chunks = new ArrayList<V>(buffer);
+                buffer.clear();
+                size = 0;
+                notFull.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if (chunks != null)
+        {
+            consumer.accept(chunks);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * The policies that determine what happens when a {@link SwingTask} 
+ * publishes intermediate results faster than they can be processed
+ * on the Event Dispatch Thread, and the bounded buffer for these
+ * results is full.
+ * 
+ * @see SwingTask#setBoundedChunkBuffer(int, ChunkOverflowPolicy)
+ */
+public enum ChunkOverflowPolicy
+{
+    /**
+     * The thread that publishes the results will be blocked until there 
+     * is space in the buffer. When the results are published on the Event
+     * Dispatch Thread, then this thread will not be blocked, and the buffer
+     * may temporarily contain more elements than its capacity.
+     */
+    BLOCK,
+    
+    /**
+     * The oldest results that are contained in the buffer will be dropped
+     * to make space for the new ones.
+     */
+    DROP_OLDEST,
+    
+    /**
+     * Only the latest result will be kept. All results that have not 
+     * been processed yet will be dropped when a new result is published. 
+     * The capacity of the buffer is ignored for this policy.
+     */
+    CONFLATE
+}
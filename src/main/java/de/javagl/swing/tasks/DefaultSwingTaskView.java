@@ -82,6 +82,12 @@ class DefaultSwingTaskView implements SwingTaskView
         swingTaskDialog.setMessage(message);
     }
 
+    @Override
+    public void setRemainingMillis(long remainingMillis)
+    {
+        swingTaskDialog.setRemainingMillis(remainingMillis);
+    }
+
     @Override
     public void taskFinished(Throwable t)
     {
@@ -0,0 +1,208 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.Window;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.JComponent;
+import javax.swing.RootPaneContainer;
+import javax.swing.SwingUtilities;
+
+/**
+ * A class that blocks the user input for a window, while a 
+ * {@link SwingTaskExecutor} is deciding whether a {@link SwingTaskView}
+ * should be shown for a task that was 
+ * {@link SwingTaskExecutor#executeAsync() executed asynchronously}.
+ * <p>
+ * Mouse input is blocked with a glass pane that consumes all mouse 
+ * events and shows a wait cursor. Keyboard input is blocked with a 
+ * <code>KeyEventDispatcher</code> that consumes all key events for 
+ * components in the window. The input for one window may be blocked
+ * several times, and will only be unblocked when it was unblocked 
+ * equally often.
+ * <p>
+ * The methods of this class are only supposed to be called on the
+ * Event Dispatch Thread.
+ */
+class InputBlocker
+{
+    /**
+     * The active input blockers
+     */
+    private static final Map<Window, InputBlocker> inputBlockers = 
+        new HashMap<Window, InputBlocker>();
+    
+    /**
+     * Block the input for the given window. If the window is not a 
+     * <code>RootPaneContainer</code>, then only the keyboard input will 
+     * be blocked. If the window is <code>null</code>, then this method
+     * has no effect.
+     * 
+     * @param window The window
+     */
+    static void block(Window window)
+    {
+        if (window == null)
+        {
+            return;
+        }
+        InputBlocker inputBlocker = inputBlockers.get(window);
+        if (inputBlocker == null)
+        {
+            inputBlocker = new InputBlocker(window);
+            inputBlockers.put(window, inputBlocker);
+            inputBlocker.install();
+        }
+        inputBlocker.count++;
+    }
+    
+    /**
+     * Unblock the input for the given window, if it was blocked 
+     * exactly once more than it was unblocked.
+     * 
+     * @param window The window
+     */
+    static void unblock(Window window)
+    {
+        InputBlocker inputBlocker = inputBlockers.get(window);
+        if (inputBlocker == null)
+        {
+            return;
+        }
+        inputBlocker.count--;
+        if (inputBlocker.count <= 0)
+        {
+            inputBlockers.remove(window);
+            inputBlocker.uninstall();
+        }
+    }
+    
+    /**
+     * The window
+     */
+    private final Window window;
+    
+    /**
+     * How often the input was blocked
+     */
+    private int count;
+    
+    /**
+     * The glass pane that was installed before the input was blocked
+     */
+    private Component previousGlassPane;
+    
+    /**
+     * The dispatcher that consumes the key events
+     */
+    private final KeyEventDispatcher keyEventDispatcher;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param window The window
+     */
+    private InputBlocker(Window window)
+    {
+        this.window = window;
+        this.keyEventDispatcher = new KeyEventDispatcher()
+        {
+            @Override
+            public boolean dispatchKeyEvent(KeyEvent e)
+            {
+                Component component = e.getComponent();
+                if (component == null)
+                {
+                    return false;
+                }
+                if (component == window || 
+                    SwingUtilities.getWindowAncestor(component) == window)
+                {
+                    e.consume();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Install the glass pane and the key event dispatcher
+     */
+    private void install()
+    {
+        if (window instanceof RootPaneContainer)
+        {
+            RootPaneContainer rootPaneContainer = (RootPaneContainer)window;
+            previousGlassPane = rootPaneContainer.getGlassPane();
+            JComponent glassPane = new JComponent()
+            {
+                /**
+                 * Serial UID
+                 */
+                private static final long serialVersionUID = 
+                    -2783446018254785932L;
+            };
+            glassPane.setOpaque(false);
+            glassPane.addMouseListener(new MouseAdapter() {});
+            glassPane.addMouseMotionListener(new MouseAdapter() {});
+            glassPane.addMouseWheelListener(new MouseAdapter() {});
+            glassPane.setCursor(
+                Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            rootPaneContainer.setGlassPane(glassPane);
+            glassPane.setVisible(true);
+        }
+        KeyboardFocusManager.getCurrentKeyboardFocusManager()
+            .addKeyEventDispatcher(keyEventDispatcher);
+    }
+    
+    /**
+     * Restore the previous glass pane and remove the key event dispatcher
+     */
+    private void uninstall()
+    {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager()
+            .removeKeyEventDispatcher(keyEventDispatcher);
+        if (window instanceof RootPaneContainer)
+        {
+            RootPaneContainer rootPaneContainer = (RootPaneContainer)window;
+            rootPaneContainer.getGlassPane().setVisible(false);
+            if (previousGlassPane != null)
+            {
+                rootPaneContainer.setGlassPane(previousGlassPane);
+            }
+        }
+    }
+}
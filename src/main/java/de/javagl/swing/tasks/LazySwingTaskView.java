@@ -0,0 +1,160 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * Implementation of a {@link SwingTaskView} that creates the actual
+ * view with a {@link SwingTaskViewFactory} only when the view is 
+ * about to be {@link #show() shown}. The progress, message and remaining 
+ * time that have been set before are stored, and passed to the actual 
+ * view when it is created. All methods are called on the Event Dispatch
+ * Thread.
+ */
+class LazySwingTaskView implements SwingTaskView
+{
+    /**
+     * The factory for the actual view
+     */
+    private final SwingTaskViewFactory swingTaskViewFactory;
+    
+    /**
+     * The {@link SwingTaskViewConfig} for the actual view
+     */
+    private final SwingTaskViewConfig swingTaskViewConfig;
+    
+    /**
+     * The actual view, or <code>null</code> if it was not created yet
+     */
+    private SwingTaskView delegate;
+    
+    /**
+     * Whether a progress has been set
+     */
+    private boolean progressWasSet;
+    
+    /**
+     * The latest progress
+     */
+    private double progress;
+    
+    /**
+     * Whether a message has been set
+     */
+    private boolean messageWasSet;
+    
+    /**
+     * The latest message
+     */
+    private String message;
+    
+    /**
+     * Whether a remaining time has been set
+     */
+    private boolean remainingMillisWasSet;
+    
+    /**
+     * The latest remaining time
+     */
+    private long remainingMillis;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param swingTaskViewFactory The factory for the actual view
+     * @param swingTaskViewConfig The {@link SwingTaskViewConfig}
+     */
+    LazySwingTaskView(SwingTaskViewFactory swingTaskViewFactory,
+        SwingTaskViewConfig swingTaskViewConfig)
+    {
+        this.swingTaskViewFactory = swingTaskViewFactory;
+        this.swingTaskViewConfig = swingTaskViewConfig;
+    }
+    
+    @Override
+    public void show()
+    {
+        if (delegate == null)
+        {
+            delegate = swingTaskViewFactory.create(swingTaskViewConfig);
+            if (messageWasSet)
+            {
+                delegate.setMessage(message);
+            }
+            if (progressWasSet)
+            {
+                delegate.setProgress(progress);
+            }
+            if (remainingMillisWasSet)
+            {
+                delegate.setRemainingMillis(remainingMillis);
+            }
+        }
+        delegate.show();
+    }
+
+    @Override
+    public void setProgress(double progress)
+    {
+        this.progress = progress;
+        this.progressWasSet = true;
+        if (delegate != null)
+        {
+            delegate.setProgress(progress);
+        }
+    }
+
+    @Override
+    public void setMessage(String message)
+    {
+        this.message = message;
+        this.messageWasSet = true;
+        if (delegate != null)
+        {
+            delegate.setMessage(message);
+        }
+    }
+    
+    @Override
+    public void setRemainingMillis(long remainingMillis)
+    {
+        this.remainingMillis = remainingMillis;
+        this.remainingMillisWasSet = true;
+        if (delegate != null)
+        {
+            delegate.setRemainingMillis(remainingMillis);
+        }
+    }
+
+    @Override
+    public void taskFinished(Throwable t)
+    {
+        if (delegate != null)
+        {
+            delegate.taskFinished(t);
+        }
+    }
+}
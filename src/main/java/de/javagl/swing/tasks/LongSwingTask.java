@@ -0,0 +1,116 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * A {@link SwingTask} that produces intermediate results that are 
+ * primitive <code>long</code> values.<br>
+ * <br>
+ * Instead of publishing boxed <code>Long</code> objects via
+ * {@link #publish(Object...)}, implementors may call 
+ * {@link #publishValues(long[], int, int)} from the {@link #doInBackground()} 
+ * method. The values will be copied into an internal buffer, and passed
+ * to the {@link #processValues(long[], int)} method on the 
+ * <i>Event Dispatch Thread</i>. The buffers are reused, so that no
+ * objects are created for the individual values. The capacity of the
+ * buffer may be configured with 
+ * {@link #setValueBuffer(int, ChunkOverflowPolicy)}.
+ *
+ * @param <T> The result type
+ */
+public abstract class LongSwingTask<T> extends PrimitiveSwingTask<T, long[]>
+{
+    /**
+     * Creates a new swing task with a default status message
+     */
+    protected LongSwingTask()
+    {
+        this("Please wait...");
+    }
+    
+    /**
+     * Creates a new swing task with the given status message
+     * 
+     * @param message The status message
+     */
+    protected LongSwingTask(String message)
+    {
+        super(message, long[]::new);
+    }
+    
+    /**
+     * Publish the given values, so that they are passed to the
+     * {@link #processValues(long[], int)} method on the 
+     * <i>Event Dispatch Thread</i>. The values are copied, so the 
+     * given array may be modified after this call.
+     * 
+     * @param values The values
+     */
+    protected final void publishValues(long[] values)
+    {
+        publishArray(values, 0, values.length);
+    }
+    
+    /**
+     * Publish the specified range of the given values, so that they are 
+     * passed to the {@link #processValues(long[], int)} method on the 
+     * <i>Event Dispatch Thread</i>. The values are copied, so the 
+     * given array may be modified after this call.
+     * 
+     * @param values The values
+     * @param offset The offset of the first value
+     * @param length The number of values
+     * @throws IndexOutOfBoundsException If the specified range is not 
+     * valid for the given array
+     */
+    protected final void publishValues(long[] values, int offset, int length)
+    {
+        publishArray(values, offset, length);
+    }
+    
+    /**
+     * Receives the values that have been passed to the 
+     * {@link #publishValues(long[], int, int)} method, on the
+     * <i>Event Dispatch Thread</i>. Only the first <code>length</code>
+     * elements of the given array are valid. The array is reused 
+     * internally, and may not be stored or modified. The default 
+     * implementation is empty and may be overridden.
+     * 
+     * @param values The values
+     * @param length The number of valid values
+     */
+    protected void processValues(long[] values, int length)
+    {
+        // Empty default implementation
+    }
+    
+    @Override
+    final void processArray(long[] values, int length)
+    {
+        processValues(values, length);
+    }
+}
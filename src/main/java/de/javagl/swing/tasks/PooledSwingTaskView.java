@@ -0,0 +1,109 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * Implementation of a {@link SwingTaskView} that is backed by a 
+ * {@link SwingTaskDialog} from the {@link SwingTaskDialogPool}. 
+ * The dialog is returned to the pool when the task is finished.
+ */
+class PooledSwingTaskView implements SwingTaskView
+{
+    /**
+     * The underlying {@link SwingTaskDialog}
+     */
+    private final SwingTaskDialog swingTaskDialog;
+    
+    /**
+     * Whether the dialog was already returned to the pool
+     */
+    private boolean released;
+    
+    /**
+     * Creates a new view based on the given {@link SwingTaskViewConfig}.
+     * Must be called on the Event Dispatch Thread.
+     * 
+     * @param swingTaskViewConfig The {@link SwingTaskViewConfig}
+     */
+    PooledSwingTaskView(SwingTaskViewConfig swingTaskViewConfig)
+    {
+        swingTaskDialog = SwingTaskDialogPool.acquire(
+            swingTaskViewConfig.getParentWindow(), 
+            swingTaskViewConfig.isModal());
+        swingTaskDialog.reset(
+            swingTaskViewConfig.getParentComponent(), 
+            swingTaskViewConfig.getTitle(), 
+            swingTaskViewConfig.getSwingTask(), 
+            swingTaskViewConfig.isCancelable());
+    }
+
+    @Override
+    public void show()
+    {
+        if (!released)
+        {
+            swingTaskDialog.setVisible(true);
+        }
+    }
+    
+    @Override
+    public void setProgress(double progress)
+    {
+        if (!released)
+        {
+            swingTaskDialog.setProgress(progress);
+        }
+    }
+
+    @Override
+    public void setMessage(String message)
+    {
+        if (!released)
+        {
+            swingTaskDialog.setMessage(message);
+        }
+    }
+
+    @Override
+    public void setRemainingMillis(long remainingMillis)
+    {
+        if (!released)
+        {
+            swingTaskDialog.setRemainingMillis(remainingMillis);
+        }
+    }
+
+    @Override
+    public void taskFinished(Throwable t)
+    {
+        if (!released)
+        {
+            released = true;
+            SwingTaskDialogPool.release(swingTaskDialog);
+        }
+    }
+}
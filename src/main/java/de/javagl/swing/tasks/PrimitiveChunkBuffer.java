@@ -0,0 +1,319 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A bounded, double-buffered store for primitive values that are 
+ * published by a background thread, and passed to a consumer on the 
+ * Event Dispatch Thread. The values are copied into a <i>front</i> array. 
+ * When they are passed to the consumer, the front array is swapped with 
+ * a <i>back</i> array, so that the background thread can continue to
+ * publish values while the consumer is processing them. The arrays 
+ * are reused, and only grow up to the capacity of the buffer. When 
+ * the buffer is full, the {@link ChunkOverflowPolicy} determines how 
+ * new values are handled.
+ * 
+ * @param <A> The type of the primitive array, e.g. <code>int[]</code>
+ */
+class PrimitiveChunkBuffer<A>
+{
+    /**
+     * The default initial size of the arrays
+     */
+    private static final int DEFAULT_INITIAL_SIZE = 1024;
+    
+    /**
+     * The factory for the arrays
+     */
+    private final IntFunction<A> arrayFactory;
+    
+    /**
+     * The maximum number of values in the buffer
+     */
+    private final int capacity;
+    
+    /**
+     * The {@link ChunkOverflowPolicy}
+     */
+    private final ChunkOverflowPolicy overflowPolicy;
+    
+    /**
+     * The consumer that receives the array and the number of valid 
+     * values in the array
+     */
+    private final ObjIntConsumer<A> consumer;
+    
+    /**
+     * The array that values are currently published to
+     */
+    private A front;
+    
+    /**
+     * The array that is passed to the consumer
+     */
+    private A back;
+    
+    /**
+     * The number of values in the {@link #front} array
+     */
+    private int size;
+    
+    /**
+     * The number of values that are currently waiting to be passed
+     * to the consumer
+     */
+    private volatile int pendingSize;
+    
+    /**
+     * Whether a {@link #flusher} is currently scheduled for being 
+     * executed on the Event Dispatch Thread
+     */
+    private final AtomicBoolean flushPending;
+    
+    /**
+     * The runnable that passes the values to the consumer
+     */
+    private final Runnable flusher;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param arrayFactory The factory for the arrays
+     * @param capacity The capacity
+     * @param overflowPolicy The {@link ChunkOverflowPolicy}
+     * @param consumer The consumer for the values
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    PrimitiveChunkBuffer(IntFunction<A> arrayFactory, int capacity,
+        ChunkOverflowPolicy overflowPolicy, ObjIntConsumer<A> consumer)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The capacity must be positive, but is " + capacity);
+        }
+        this.arrayFactory = arrayFactory;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.consumer = consumer;
+        int initialSize = Math.min(DEFAULT_INITIAL_SIZE, capacity);
+        this.front = arrayFactory.apply(initialSize);
+        this.back = arrayFactory.apply(initialSize);
+        this.flushPending = new AtomicBoolean();
+        this.flusher = () -> flush();
+    }
+    
+    /**
+     * Copy the specified range of the given array into this buffer, 
+     * handling an overflow according to the {@link ChunkOverflowPolicy}, 
+     * and make sure that the values will be passed to the consumer on the 
+     * Event Dispatch Thread.<br>
+     * <br>
+     * For the {@link ChunkOverflowPolicy#CONFLATE} policy, only the values 
+     * of the most recent call are kept. If the calling thread is 
+     * interrupted while it is blocked, then the remaining values will 
+     * be dropped, and the interrupted flag of the thread will be set.
+     * 
+     * @param values The values
+     * @param offset The offset in the given array
+     * @param length The number of values
+     * @throws IndexOutOfBoundsException If the specified range is not 
+     * valid for the given array
+     */
+    void publish(A values, int offset, int length)
+    {
+        int valuesLength = Array.getLength(values);
+        if (offset < 0 || length < 0 || offset > valuesLength - length)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid range: offset " + offset + ", length " + length + 
+                ", array length " + valuesLength);
+        }
+        if (length == 0)
+        {
+            return;
+        }
+        boolean mayBlock = !SwingUtilities.isEventDispatchThread();
+        synchronized (this)
+        {
+            if (overflowPolicy == ChunkOverflowPolicy.CONFLATE)
+            {
+                size = 0;
+                append(values, offset, length);
+            }
+            else if (overflowPolicy == ChunkOverflowPolicy.DROP_OLDEST)
+            {
+                if (length >= capacity)
+                {
+                    size = 0;
+                    append(values, offset + length - capacity, capacity);
+                }
+                else
+                {
+                    int excess = size + length - capacity;
+                    if (excess > 0)
+                    {
+                        System.arraycopy(front, excess, front, 0, 
+                            size - excess);
+                        size -= excess;
+                    }
+                    append(values, offset, length);
+                }
+            }
+            else
+            {
+                appendBlocking(values, offset, length, mayBlock);
+            }
+            pendingSize = size;
+        }
+        requestFlush();
+    }
+    
+    /**
+     * Append the specified range of the given array to the front array,
+     * waiting for the buffer to be drained when it is full and the 
+     * calling thread may block. Only to be called while holding the 
+     * monitor of this buffer.
+     * 
+     * @param values The values
+     * @param offset The offset in the given array
+     * @param length The number of values
+     * @param mayBlock Whether the calling thread may block
+     */
+    private void appendBlocking(
+        A values, int offset, int length, boolean mayBlock)
+    {
+        int position = offset;
+        int remaining = length;
+        try
+        {
+            while (remaining > 0)
+            {
+                int free = capacity - size;
+                if (free <= 0)
+                {
+                    if (mayBlock)
+                    {
+                        pendingSize = size;
+                        requestFlush();
+                        wait();
+                        continue;
+                    }
+                    free = remaining;
+                }
+                int n = Math.min(free, remaining);
+                append(values, position, n);
+                position += n;
+                remaining -= n;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Append the specified range of the given array to the front array,
+     * growing the front array if necessary. Only to be called while 
+     * holding the monitor of this buffer.
+     * 
+     * @param values The values
+     * @param offset The offset in the given array
+     * @param length The number of values
+     */
+    private void append(A values, int offset, int length)
+    {
+        int frontSize = Array.getLength(front);
+        int required = size + length;
+        if (required > frontSize)
+        {
+            int grownSize = Math.min(capacity, frontSize + frontSize / 2);
+            A newFront = arrayFactory.apply(Math.max(required, grownSize));
+            System.arraycopy(front, 0, newFront, 0, size);
+            front = newFront;
+        }
+        System.arraycopy(values, offset, front, size, length);
+        size = required;
+    }
+    
+    /**
+     * Returns the number of values that are currently waiting to be 
+     * passed to the consumer
+     * 
+     * @return The number of values
+     */
+    int size()
+    {
+        return pendingSize;
+    }
+    
+    /**
+     * Make sure that the {@link #flusher} is scheduled to be executed
+     * on the Event Dispatch Thread, unless it is already pending
+     */
+    private void requestFlush()
+    {
+        if (flushPending.compareAndSet(false, true))
+        {
+            SwingUtilities.invokeLater(flusher);
+        }
+    }
+    
+    /**
+     * Swap the front and the back array, and pass the back array to the 
+     * consumer. Only to be called on the Event Dispatch Thread.
+     */
+    private void flush()
+    {
+        A values = null;
+        int length = 0;
+        synchronized (this)
+        {
+            A oldFront = front;
+            front = back;
+            back = oldFront;
+            values = back;
+            length = size;
+            size = 0;
+            pendingSize = 0;
+            flushPending.set(false);
+            notifyAll();
+        }
+        if (length > 0)
+        {
+            consumer.accept(values, length);
+        }
+    }
+}
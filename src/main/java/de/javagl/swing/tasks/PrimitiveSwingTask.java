@@ -0,0 +1,154 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Base class for {@link SwingTask}s that produce intermediate results 
+ * that are primitive values. It maintains the 
+ * {@link PrimitiveChunkBuffer} for the values. Subclasses only offer 
+ * the methods for publishing and processing the values that are 
+ * specific for the primitive type.
+ *
+ * @param <T> The result type
+ * @param <A> The type of the primitive array, e.g. <code>int[]</code>
+ */
+abstract class PrimitiveSwingTask<T, A> extends SwingTask<T, Void>
+{
+    /**
+     * The default capacity of the buffer for the published values
+     */
+    static final int DEFAULT_VALUE_BUFFER_CAPACITY = 1 << 16;
+    
+    /**
+     * The factory for the arrays of the buffer
+     */
+    private final IntFunction<A> arrayFactory;
+    
+    /**
+     * The buffer for the published values
+     */
+    private volatile PrimitiveChunkBuffer<A> buffer;
+    
+    /**
+     * Creates a new swing task with the given status message
+     * 
+     * @param message The status message
+     * @param arrayFactory The factory for the arrays of the buffer
+     */
+    PrimitiveSwingTask(String message, IntFunction<A> arrayFactory)
+    {
+        super(message);
+        this.arrayFactory = arrayFactory;
+        this.buffer = createBuffer(
+            DEFAULT_VALUE_BUFFER_CAPACITY, ChunkOverflowPolicy.BLOCK);
+    }
+    
+    /**
+     * Create the buffer for the published values
+     * 
+     * @param capacity The capacity
+     * @param overflowPolicy The {@link ChunkOverflowPolicy}
+     * @return The buffer
+     */
+    private PrimitiveChunkBuffer<A> createBuffer(
+        int capacity, ChunkOverflowPolicy overflowPolicy)
+    {
+        return new PrimitiveChunkBuffer<A>(arrayFactory, capacity, 
+            overflowPolicy, (values, length) -> processArray(values, length));
+    }
+    
+    /**
+     * Set the capacity and the overflow policy of the buffer for the
+     * published values.<br>
+     * <br>
+     * The values are collected in a buffer until they are passed to the
+     * processing method on the Event Dispatch Thread. By default, this 
+     * buffer has a capacity of 65536 values, and threads that publish 
+     * values while the buffer is full are blocked with the 
+     * {@link ChunkOverflowPolicy#BLOCK} policy. For the 
+     * {@link ChunkOverflowPolicy#CONFLATE} policy, only the values of 
+     * the most recent publishing call are kept.<br>
+     * <br>
+     * This method has to be called before this task is executed.
+     * 
+     * @param capacity The capacity of the buffer, in number of values
+     * @param overflowPolicy The {@link ChunkOverflowPolicy}
+     * @throws IllegalArgumentException If the capacity is not positive
+     * @throws NullPointerException If the policy is <code>null</code>
+     */
+    public final void setValueBuffer(
+        int capacity, ChunkOverflowPolicy overflowPolicy)
+    {
+        Objects.requireNonNull(overflowPolicy, 
+            "The overflowPolicy may not be null");
+        this.buffer = createBuffer(capacity, overflowPolicy);
+    }
+    
+    /**
+     * Returns the number of values that have been published, but not yet
+     * processed.<br>
+     * <br>
+     * A value that is constantly close to the capacity of the 
+     * {@link #setValueBuffer(int, ChunkOverflowPolicy) buffer} indicates 
+     * that the processing on the Event Dispatch Thread is the bottleneck.
+     * 
+     * @return The number of pending values
+     */
+    public final int getPendingValueCount()
+    {
+        return buffer.size();
+    }
+    
+    /**
+     * Publish the specified range of the given values, so that they are 
+     * passed to {@link #processArray(Object, int)} on the 
+     * <i>Event Dispatch Thread</i>
+     * 
+     * @param values The values
+     * @param offset The offset of the first value
+     * @param length The number of values
+     * @throws IndexOutOfBoundsException If the specified range is not 
+     * valid for the given array
+     */
+    final void publishArray(A values, int offset, int length)
+    {
+        buffer.publish(values, offset, length);
+    }
+    
+    /**
+     * Receives the values that have been published, on the
+     * <i>Event Dispatch Thread</i>. Only the first <code>length</code>
+     * elements of the given array are valid.
+     * 
+     * @param values The values
+     * @param length The number of valid values
+     */
+    abstract void processArray(A values, int length);
+}
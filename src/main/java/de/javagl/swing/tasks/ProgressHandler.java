@@ -54,4 +54,42 @@ public interface ProgressHandler
      * @param progress The progress
      */
     void setProgress(double progress);
+    
+    /**
+     * Create a child handler that is responsible for the given fraction 
+     * of the progress of this handler.<br>
+     * <br>
+     * When the progress of the child is set to a value between 0 and 1,
+     * then the progress of this handler is increased by the given weight, 
+     * multiplied with the change of the progress of the child. This allows 
+     * splitting a task into several phases or parallel sub-computations, 
+     * where each of them reports its own progress between 0 and 1. The
+     * children may be updated from different threads. Child handlers may 
+     * be split again. Progress values &lt;0 that are passed to the 
+     * child are ignored. Messages that are passed to the child are 
+     * forwarded to this handler.<br>
+     * <br>
+     * Implementations may clamp the aggregated progress of a handler 
+     * that has been split to the range [0,1]. The handler that is 
+     * obtained from {@link SwingTask#getProgressHandler()} does so, and 
+     * reports 1.0 when the weighted sum is only below 1.0 due to 
+     * rounding errors. As long as it has not been split, it passes 
+     * all values unmodified, so that negative values still indicate 
+     * an indeterminate progress.<br>
+     * <br>
+     * The default implementation returns a child that keeps track of
+     * the weighted sum of the progress of all children that have been 
+     * created from this handler, and passes this sum, clamped to [0,1],
+     * to {@link #setProgress(double)}. Progress values that are passed
+     * directly to this handler are not included in this sum.
+     * 
+     * @param weight The weight, which should be a value between 0 and 1
+     * @return The child handler
+     * @throws IllegalArgumentException If the weight is negative or 
+     * not a number
+     */
+    default ProgressHandler split(double weight)
+    {
+        return SplitProgressHandler.create(this, weight);
+    }
 }
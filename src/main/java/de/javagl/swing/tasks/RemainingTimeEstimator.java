@@ -0,0 +1,66 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * Interface for classes that can estimate the remaining time of a
+ * {@link SwingTask}, based on the progress that was reported by the 
+ * task so far. Instances of this class may be created with the 
+ * factory methods in the {@link RemainingTimeEstimators} class.
+ * <p>
+ * The estimate is used by the {@link SwingTaskExecutor} in order to 
+ * decide whether a {@link SwingTaskView} should be shown, and may be 
+ * displayed in the {@link SwingTaskView}.
+ * <p>
+ * Implementations of this interface must be thread-safe: The 
+ * {@link #update(long, double)} method will be called by the thread
+ * that executes the task while the decision about showing the 
+ * {@link SwingTaskView} is pending, and afterwards on the Event Dispatch
+ * Thread while the view is shown. The {@link #estimateRemainingMillis()}
+ * method may be called by any thread. An instance should only be
+ * used for a single task.
+ */
+public interface RemainingTimeEstimator
+{
+    /**
+     * Update this estimator with the given progress information
+     * 
+     * @param elapsedMillis The milliseconds that have passed since 
+     * the task was started
+     * @param progress The current progress of the task. This is a value 
+     * between 0.0 and 1.0, or a value &lt;0.0 if the progress is not known.
+     */
+    void update(long elapsedMillis, double progress);
+    
+    /**
+     * Returns the estimated remaining time of the task, in milliseconds,
+     * or a value &lt;0 if the remaining time can not be estimated.
+     * 
+     * @return The estimated remaining time
+     */
+    long estimateRemainingMillis();
+}
@@ -0,0 +1,246 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * Methods to create {@link RemainingTimeEstimator} instances
+ */
+public class RemainingTimeEstimators
+{
+    /**
+     * The default smoothing factor for the 
+     * {@link #createExponentialMovingAverage(double) exponential
+     * moving average}
+     */
+    private static final double DEFAULT_ALPHA = 0.3;
+    
+    /**
+     * Creates the default {@link RemainingTimeEstimator}. This is an 
+     * {@link #createExponentialMovingAverage(double) exponential moving 
+     * average estimator} with a default smoothing factor. 
+     * 
+     * @return The {@link RemainingTimeEstimator}
+     */
+    public static RemainingTimeEstimator create()
+    {
+        return createExponentialMovingAverage(DEFAULT_ALPHA);
+    }
+    
+    /**
+     * Creates a {@link RemainingTimeEstimator} that assumes that the
+     * progress increases linearly with the elapsed time. This is a 
+     * reasonable estimate for tasks that make progress at a constant 
+     * rate, but will be inaccurate for tasks that have a slow start, 
+     * or phases that make progress at different rates.
+     * 
+     * @return The {@link RemainingTimeEstimator}
+     */
+    public static RemainingTimeEstimator createLinear()
+    {
+        return new LinearRemainingTimeEstimator();
+    }
+    
+    /**
+     * Creates a {@link RemainingTimeEstimator} that estimates the remaining
+     * time based on an exponential moving average of the rate at which 
+     * the progress increases. Recent progress is weighted more strongly 
+     * than the progress at the beginning of the task, so that the 
+     * estimate adapts to tasks that have a slow start or phases that 
+     * make progress at different rates. Until the first rate has been
+     * sampled, the estimate is the same as that of a 
+     * {@link #createLinear() linear estimator}. Note that the estimate 
+     * is only updated when the progress changes. While a task is stalled,
+     * the estimate remains unchanged.
+     * 
+     * @param alpha The smoothing factor, which is the weight of the most
+     * recent rate, and must be in (0,1]
+     * @return The {@link RemainingTimeEstimator}
+     * @throws IllegalArgumentException If the smoothing factor is not
+     * in (0,1]
+     */
+    public static RemainingTimeEstimator createExponentialMovingAverage(
+        double alpha)
+    {
+        if (!(alpha > 0 && alpha <= 1))
+        {
+            throw new IllegalArgumentException(
+                "The alpha must be in (0,1], but is " + alpha);
+        }
+        return new ExponentialMovingAverageRemainingTimeEstimator(alpha);
+    }
+    
+    /**
+     * Implementation of a {@link RemainingTimeEstimator} that assumes 
+     * a constant rate of progress
+     */
+    private static class LinearRemainingTimeEstimator 
+        implements RemainingTimeEstimator
+    {
+        /**
+         * The most recent elapsed time
+         */
+        private long elapsedMillis;
+        
+        /**
+         * The most recent progress
+         */
+        private double progress;
+        
+        @Override
+        public synchronized void update(long elapsedMillis, double progress)
+        {
+            this.elapsedMillis = elapsedMillis;
+            this.progress = progress;
+        }
+
+        @Override
+        public synchronized long estimateRemainingMillis()
+        {
+            if (progress <= 0)
+            {
+                return -1;
+            }
+            return (long)(elapsedMillis * (1.0 - Math.min(1.0, progress)) 
+                / progress);
+        }
+    }
+
+    /**
+     * Implementation of a {@link RemainingTimeEstimator} that is based
+     * on an exponential moving average of the progress rate
+     */
+    private static class ExponentialMovingAverageRemainingTimeEstimator 
+        implements RemainingTimeEstimator
+    {
+        /**
+         * The minimum time between two samples of the progress rate,
+         * so that very frequent updates do not cause a noisy rate
+         */
+        private static final long MIN_SAMPLE_INTERVAL_MILLIS = 20;
+        
+        /**
+         * The smoothing factor
+         */
+        private final double alpha;
+        
+        /**
+         * The elapsed time at the last sample
+         */
+        private long sampleElapsedMillis;
+        
+        /**
+         * The progress at the last sample
+         */
+        private double sampleProgress;
+        
+        /**
+         * The most recent elapsed time
+         */
+        private long elapsedMillis;
+        
+        /**
+         * The most recent progress
+         */
+        private double progress;
+        
+        /**
+         * The average progress rate, in progress per millisecond, or
+         * a negative value if no rate was computed yet
+         */
+        private double rate;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param alpha The smoothing factor
+         */
+        ExponentialMovingAverageRemainingTimeEstimator(double alpha)
+        {
+            this.alpha = alpha;
+            this.rate = -1.0;
+        }
+        
+        @Override
+        public synchronized void update(long elapsedMillis, double progress)
+        {
+            this.elapsedMillis = elapsedMillis;
+            this.progress = progress;
+            if (progress < 0)
+            {
+                this.rate = -1.0;
+                return;
+            }
+            long deltaMillis = elapsedMillis - sampleElapsedMillis;
+            if (deltaMillis < MIN_SAMPLE_INTERVAL_MILLIS)
+            {
+                return;
+            }
+            double deltaProgress = Math.max(0.0, progress - sampleProgress);
+            double sampleRate = deltaProgress / deltaMillis;
+            if (rate < 0)
+            {
+                rate = sampleRate;
+            }
+            else
+            {
+                rate = alpha * sampleRate + (1.0 - alpha) * rate;
+            }
+            sampleElapsedMillis = elapsedMillis;
+            sampleProgress = progress;
+        }
+
+        @Override
+        public synchronized long estimateRemainingMillis()
+        {
+            if (progress <= 0)
+            {
+                return -1;
+            }
+            double remainingProgress = 1.0 - Math.min(1.0, progress);
+            if (rate < 0)
+            {
+                // No rate has been sampled yet. Fall back to the linear
+                // estimate, so that short tasks are not considered to 
+                // have an unknown remaining time
+                return (long)(elapsedMillis * remainingProgress / progress);
+            }
+            if (rate == 0)
+            {
+                return -1;
+            }
+            return (long)(remainingProgress / rate);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RemainingTimeEstimators()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A simple child handler that is created by the default implementation of
+ * {@link ProgressHandler#split(double)}, for <code>ProgressHandler</code>
+ * implementations that do not support splitting on their own.<br>
+ * <br>
+ * All children that are created from the same parent handler share one
+ * {@link Accumulator}, which stores the weighted sum of the progress of 
+ * the children, and passes it to the parent. The accumulators are stored 
+ * in a weak map, so that they remain available as long as the parent 
+ * handler is reachable. Unlike the {@link WeightedProgressHandler}, this 
+ * class uses simple locking, because it is not used for the handlers 
+ * of a {@link SwingTask}.
+ */
+class SplitProgressHandler implements ProgressHandler
+{
+    /**
+     * The accumulated progress of the children of one parent handler
+     */
+    private static class Accumulator
+    {
+        /**
+         * The weighted sum of the progress of the children
+         */
+        private double progress;
+        
+        /**
+         * Add the given value to the accumulated progress, and pass the
+         * result to the given parent. The value is clamped to [0,1], and 
+         * values that are close to 1.0 are snapped to 1.0.
+         * 
+         * @param parent The parent handler
+         * @param delta The value to add
+         */
+        synchronized void addProgress(ProgressHandler parent, double delta)
+        {
+            progress += delta;
+            if (progress >= 1.0 - WeightedProgressHandler.COMPLETION_EPSILON)
+            {
+                parent.setProgress(1.0);
+            }
+            else
+            {
+                parent.setProgress(Math.max(0.0, progress));
+            }
+        }
+    }
+    
+    /**
+     * The {@link Accumulator} instances for the parent handlers
+     */
+    private static final Map<ProgressHandler, Accumulator> accumulators =
+        new WeakHashMap<ProgressHandler, Accumulator>();
+    
+    /**
+     * Creates a child handler of the given parent, with the given weight
+     * 
+     * @param parent The parent handler
+     * @param weight The weight
+     * @return The child handler
+     * @throws IllegalArgumentException If the weight is negative or 
+     * not a number
+     */
+    static ProgressHandler create(ProgressHandler parent, double weight)
+    {
+        validateWeight(weight);
+        Accumulator accumulator;
+        synchronized (accumulators)
+        {
+            accumulator = accumulators.computeIfAbsent(
+                parent, p -> new Accumulator());
+        }
+        return new SplitProgressHandler(parent, accumulator, weight);
+    }
+    
+    /**
+     * Make sure that the given weight is not negative
+     * 
+     * @param weight The weight
+     * @throws IllegalArgumentException If the weight is negative or 
+     * not a number
+     */
+    private static void validateWeight(double weight)
+    {
+        if (!(weight >= 0))
+        {
+            throw new IllegalArgumentException(
+                "The weight must not be negative, but is " + weight);
+        }
+    }
+    
+    /**
+     * The parent handler
+     */
+    private final ProgressHandler parent;
+    
+    /**
+     * The {@link Accumulator} of the parent handler
+     */
+    private final Accumulator accumulator;
+    
+    /**
+     * The weight of this handler, relative to the parent
+     */
+    private final double weight;
+    
+    /**
+     * The last progress that was reported to this handler. Guarded by 
+     * the {@link #accumulator}.
+     */
+    private double progress;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param parent The parent handler
+     * @param accumulator The {@link Accumulator} of the parent
+     * @param weight The weight, relative to the parent
+     */
+    private SplitProgressHandler(ProgressHandler parent, 
+        Accumulator accumulator, double weight)
+    {
+        this.parent = parent;
+        this.accumulator = accumulator;
+        this.weight = weight;
+    }
+    
+    @Override
+    public void setMessage(String message)
+    {
+        parent.setMessage(message);
+    }
+    
+    @Override
+    public void setProgress(double progress)
+    {
+        if (!(progress >= 0))
+        {
+            return;
+        }
+        double clampedProgress = Math.min(1.0, progress);
+        synchronized (accumulator)
+        {
+            double delta = clampedProgress - this.progress;
+            this.progress = clampedProgress;
+            if (delta != 0.0)
+            {
+                accumulator.addProgress(parent, weight * delta);
+            }
+        }
+    }
+    
+    @Override
+    public ProgressHandler split(double weight)
+    {
+        validateWeight(weight);
+        return new SplitProgressHandler(
+            parent, accumulator, this.weight * weight);
+    }
+}
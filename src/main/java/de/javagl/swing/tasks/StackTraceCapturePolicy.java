@@ -0,0 +1,62 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+/**
+ * The policies for capturing the stack trace of the location where a 
+ * {@link SwingTask} was scheduled for execution. This stack trace 
+ * is used for the exception that is passed to the uncaught exception
+ * handler when the task fails, and helps to find the code that 
+ * executed the task. 
+ * 
+ * @see SwingTaskExecutorBuilder#setStackTraceCapturePolicy(
+ * StackTraceCapturePolicy)
+ */
+public enum StackTraceCapturePolicy
+{
+    /**
+     * The full stack trace will be obtained and stored when the task is
+     * executed. 
+     */
+    FULL,
+    
+    /**
+     * A lightweight representation of the stack trace will be captured
+     * when the task is executed, and only be converted into the actual 
+     * stack trace elements when the task fails. This causes the same 
+     * stack traces as {@link #FULL}, but at a lower cost for tasks that 
+     * complete normally.
+     */
+    LAZY,
+    
+    /**
+     * No stack trace will be captured. The exceptions that are passed
+     * to the uncaught exception handler will then not contain information
+     * about where the task was scheduled.
+     */
+    NONE
+}
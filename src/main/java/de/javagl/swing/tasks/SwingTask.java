@@ -29,13 +29,19 @@ package de.javagl.swing.tasks;
 import java.beans.PropertyChangeListener;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import javax.swing.SwingUtilities;
@@ -130,17 +136,86 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      */
     private volatile double progress;
 
+    /**
+     * Whether progress updates are coalesced
+     * 
+     * @see #setCoalescingProgressUpdates(boolean)
+     */
+    private volatile boolean coalescingProgressUpdates;
+    
+    /**
+     * Whether progress updates are throttled
+     * 
+     * @see #setProgressThrottling(double, long)
+     */
+    private volatile boolean throttlingProgressUpdates;
+    
+    /**
+     * The minimum change of the progress for an update to be passed on,
+     * when progress updates are throttled
+     */
+    private volatile double throttlingMinDelta;
+    
+    /**
+     * The minimum time, in nanoseconds, between two progress updates that 
+     * are passed on, when progress updates are throttled
+     */
+    private volatile long throttlingMinIntervalNanos;
+    
+    /**
+     * The last progress value that was passed on while progress updates
+     * are throttled
+     */
+    private volatile double throttlingLastProgress;
+    
+    /**
+     * The time stamp, in nanoseconds, of the last progress value that 
+     * was passed on while progress updates are throttled
+     */
+    private volatile long throttlingLastNanos;
+    
+    /**
+     * The progress value that was most recently passed to 
+     * {@link #setProgress(double)}, while progress updates are throttled
+     */
+    private volatile double throttlingRequestedProgress;
+    
+    /**
+     * Whether a {@link #progressDispatcher} is currently scheduled for
+     * being executed on the Event Dispatch Thread
+     */
+    private final AtomicBoolean progressDispatchPending = new AtomicBoolean();
+    
+    /**
+     * The runnable that will dispatch the latest progress and message to 
+     * the {@link ProgressListener}s when progress updates are coalesced
+     */
+    private final Runnable progressDispatcher = () -> dispatchLatestProgress();
+    
+    /**
+     * The message that was most recently passed to the 
+     * {@link ProgressListener}s. Only accessed on the Event Dispatch Thread.
+     */
+    private String dispatchedMessage;
+    
+    /**
+     * The progress that was most recently passed to the 
+     * {@link ProgressListener}s. Only accessed on the Event Dispatch Thread.
+     */
+    private double dispatchedProgress;
+
     /**
      * The {@link ProgressHandler} that serves as a channel to
      * collect progress information and update this task
      * and inform the attached {@link ProgressListener}s
      */
-    private final ProgressHandler progressHandler = new ProgressHandler()
+    private final WeightedProgressHandler progressHandler = 
+        new WeightedProgressHandler(new ProgressHandler()
     {
         @Override
         public void setProgress(double progress)
         {
-            SwingTask.this.setProgress(progress);
+            updateHandlerProgress(progress);
         }
         
         @Override
@@ -148,7 +223,22 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         {
             SwingTask.this.setMessage(message);
         }
-    };
+    }, new WeightedProgressHandler.Throttle()
+    {
+        @Override
+        public boolean isThrottled(double progress)
+        {
+            return throttlingProgressUpdates && 
+                SwingTask.this.isThrottled(progress);
+        }
+        
+        @Override
+        public boolean isThrottledChange(double change)
+        {
+            return throttlingProgressUpdates && 
+                SwingTask.this.isThrottledChange(change);
+        }
+    });
     
     /**
      * Internal interface to inform a {@link SwingTaskExecutor} about
@@ -190,18 +280,64 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      * swing worker
      */
     private UncaughtExceptionHandler uncaughtExceptionHandler;
+    
+    /**
+     * The optional executor that will run this task. If this is 
+     * <code>null</code>, then the task will be executed with the
+     * default executor of the underlying SwingWorker.
+     */
+    private Executor executor;
 
     /**
      * The stack trace of where the task was scheduled
      */
     private StackTraceElement schedulingStackTrace[];
     
+    /**
+     * A throwable that was created where the task was scheduled, and
+     * from which the {@link #schedulingStackTrace} may be obtained 
+     * lazily
+     */
+    private Throwable schedulingStackTraceSource;
+    
+    /**
+     * A callback that receives intermediate results, together with the
+     * flag whether it requires its own, modifiable list
+     *
+     * @param <V> The intermediate results type
+     */
+    private static final class ProcessCallback<V>
+    {
+        /**
+         * The callback
+         */
+        private final Consumer<List<V>> consumer;
+        
+        /**
+         * Whether the callback requires its own, modifiable list
+         */
+        private final boolean requiresMutableList;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param consumer The callback
+         * @param requiresMutableList Whether the callback requires its own, 
+         * modifiable list
+         */
+        ProcessCallback(Consumer<List<V>> consumer, boolean requiresMutableList)
+        {
+            this.consumer = consumer;
+            this.requiresMutableList = requiresMutableList;
+        }
+    }
+    
     /**
      * The list of callbacks that will be called on the Event Dispatch Thread,
-     * with the intermediate results that are passed to the 
-     * {@link #publish(Object...)} method
+     * in the order in which they have been added, with the intermediate 
+     * results that are passed to the {@link #publish(Object...)} method
      */
-    private final List<Consumer<List<V>>> processCallbacks;
+    private final List<ProcessCallback<V>> processCallbacks;
     
     /**
      * The list of callbacks that will be called on the Event Dispatch Thread,
@@ -209,6 +345,18 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      */
     private final List<Consumer<SwingTask<T, V>>> doneCallbacks;
     
+    /**
+     * The optional bounded buffer for the chunks that are passed to
+     * the {@link #publish(Object...)} method
+     */
+    private volatile ChunkChannel<V> chunkChannel;
+    
+    /**
+     * The future that is completed when this task is done. This is 
+     * created lazily in {@link #toCompletionStage()}
+     */
+    private volatile CompletableFuture<T> completion;
+    
     
     /**
      * Creates a new swing task with a default status message
@@ -227,10 +375,12 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
     {
         this.message = message;
         this.progress = 0;
+        this.dispatchedMessage = message;
+        this.dispatchedProgress = 0;
         
         this.swingTaskWorker = new SwingTaskWorker();
         this.progressListeners = new CopyOnWriteArrayList<ProgressListener>();
-        this.processCallbacks = new CopyOnWriteArrayList<Consumer<List<V>>>();
+        this.processCallbacks = new CopyOnWriteArrayList<ProcessCallback<V>>();
         this.doneCallbacks = 
             new CopyOnWriteArrayList<Consumer<SwingTask<T,V>>>();
 
@@ -239,13 +389,46 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
     /**
      * Add the given callback to be called on the Event Dispatch Thread, 
      * receiving a list of intermediate results that have been passed
-     * to the {@link #publish(Object...)} method.
+     * to the {@link #publish(Object...)} method.<br>
+     * <br>
+     * The callback receives an unmodifiable view of the intermediate 
+     * results that is shared with other callbacks. This view is only 
+     * valid during the call, and may not be stored. Callbacks that need 
+     * their own copy of the intermediate results, which they may modify 
+     * or store, may be added with 
+     * {@link #addProcessCallback(Consumer, boolean)}.<br>
+     * <br>
+     * All process callbacks are called in the order in which they have 
+     * been added.
      * 
      * @param processCallback The callback to add
      */
     public final void addProcessCallback(Consumer<List<V>> processCallback)
     {
-        processCallbacks.add(processCallback);
+        addProcessCallback(processCallback, false);
+    }
+
+    /**
+     * Add the given callback to be called on the Event Dispatch Thread, 
+     * receiving a list of intermediate results that have been passed
+     * to the {@link #publish(Object...)} method.<br>
+     * <br>
+     * If the given flag is <code>true</code>, then the callback will
+     * receive its own copy of the intermediate results, which it may 
+     * modify or store. Otherwise, it will receive an unmodifiable 
+     * view that is shared with other callbacks, and only valid 
+     * during the call. All process callbacks are called in the order 
+     * in which they have been added, regardless of this flag.
+     * 
+     * @param processCallback The callback to add
+     * @param requiresMutableList Whether the callback requires its own,
+     * modifiable list
+     */
+    public final void addProcessCallback(
+        Consumer<List<V>> processCallback, boolean requiresMutableList)
+    {
+        processCallbacks.add(
+            new ProcessCallback<V>(processCallback, requiresMutableList));
     }
 
     /**
@@ -256,7 +439,14 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      */
     public final void removeProcessCallback(Consumer<List<V>> processCallback)
     {
-        processCallbacks.remove(processCallback);
+        for (ProcessCallback<V> entry : processCallbacks)
+        {
+            if (Objects.equals(entry.consumer, processCallback))
+            {
+                processCallbacks.remove(entry);
+                return;
+            }
+        }
     }
 
     /**
@@ -281,6 +471,56 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         doneCallbacks.add(doneCallback);
     }    
     
+    /**
+     * Set a bounded buffer for the intermediate results of this task.<br>
+     * <br>
+     * By default, the chunks that are passed to {@link #publish(Object...)}
+     * are buffered without limit until they are passed to the
+     * {@link #process(List)} method on the Event Dispatch Thread. When
+     * the chunks are published faster than they can be processed, this
+     * buffer may grow indefinitely. When a bounded buffer is set with this
+     * method, then it will contain at most the given number of chunks, 
+     * and the given {@link ChunkOverflowPolicy} determines what happens 
+     * when new chunks are published while the buffer is full.<br>
+     * <br>
+     * This method has to be called before this task is executed.
+     * 
+     * @param capacity The capacity of the buffer
+     * @param overflowPolicy The {@link ChunkOverflowPolicy}
+     * @throws IllegalArgumentException If the capacity is not positive
+     * @throws NullPointerException If the policy is <code>null</code>
+     */
+    public final void setBoundedChunkBuffer(
+        int capacity, ChunkOverflowPolicy overflowPolicy)
+    {
+        Objects.requireNonNull(overflowPolicy, 
+            "The overflowPolicy may not be null");
+        this.chunkChannel = new ChunkChannel<V>(
+            capacity, overflowPolicy, chunks -> callProcess(chunks));
+    }
+    
+    /**
+     * Returns the number of chunks that have been published, but not yet
+     * processed. If no {@link #setBoundedChunkBuffer(int, ChunkOverflowPolicy)
+     * bounded buffer} was set, then this number is not known, and 0 will 
+     * be returned.<br>
+     * <br>
+     * A value that is constantly close to the capacity of the buffer 
+     * indicates that the processing on the Event Dispatch Thread is 
+     * the bottleneck.
+     * 
+     * @return The number of pending chunks
+     */
+    public final int getPendingChunkCount()
+    {
+        ChunkChannel<V> currentChunkChannel = chunkChannel;
+        if (currentChunkChannel == null)
+        {
+            return 0;
+        }
+        return currentChunkChannel.size();
+    }
+    
     /**
      * Set the handler for uncaught exceptions that may occur in the
      * underlying swing worker. If this is <code>null</code>, then
@@ -295,6 +535,18 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         this.uncaughtExceptionHandler = uncaughtExceptionHandler;
     }
     
+    /**
+     * Set the executor that should run this task when it is 
+     * {@link #execute() executed}. If this is <code>null</code>, then
+     * the default executor of the underlying SwingWorker will be used. 
+     * 
+     * @param executor The executor
+     */
+    final void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
     /**
      * Set the {@link SwingTaskListener}. Only to be called
      * by the {@link SwingTaskExecutor}
@@ -315,6 +567,37 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
     final void setSchedulingStackTrace(StackTraceElement schedulingStackTrace[])
     {
         this.schedulingStackTrace = schedulingStackTrace;
+        this.schedulingStackTraceSource = null;
+    }
+    
+    /**
+     * Set a throwable that was created where this task was scheduled.
+     * The stack trace of this throwable will only be obtained when it is
+     * actually needed, namely when the task fails with an exception.
+     * 
+     * @param schedulingStackTraceSource The throwable
+     */
+    final void setSchedulingStackTraceSource(
+        Throwable schedulingStackTraceSource)
+    {
+        this.schedulingStackTrace = null;
+        this.schedulingStackTraceSource = schedulingStackTraceSource;
+    }
+    
+    /**
+     * Returns the stack trace with information about where this task was 
+     * scheduled, or <code>null</code> if no such information is available
+     * 
+     * @return The scheduling stack trace
+     */
+    private StackTraceElement[] getSchedulingStackTrace()
+    {
+        if (schedulingStackTrace == null && schedulingStackTraceSource != null)
+        {
+            schedulingStackTrace = schedulingStackTraceSource.getStackTrace();
+            schedulingStackTraceSource = null;
+        }
+        return schedulingStackTrace;
     }
 
     /**
@@ -333,6 +616,7 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         try
         {
             T result = doInBackground();
+            flushThrottledProgress();
             if (swingTaskListener != null)
             {
                 swingTaskListener.finished(null);
@@ -341,8 +625,13 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         }
         catch (Exception e)
         {
+            flushThrottledProgress();
             Exception extended = new ExecutionException(e);
-            extended.setStackTrace(schedulingStackTrace);
+            StackTraceElement[] stackTrace = getSchedulingStackTrace();
+            if (stackTrace != null)
+            {
+                extended.setStackTrace(stackTrace);
+            }
             if (swingTaskListener != null)
             {
                 swingTaskListener.finished(extended);
@@ -371,14 +660,28 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      * in the {@link #doInBackground()} method to publish 
      * intermediate results. These will be accumulated and 
      * may be processed in the {@link #process(List)} method,
-     * which is called on the <i>Event Dispatch Thread</i> 
+     * which is called on the <i>Event Dispatch Thread</i>.<br>
+     * <br>
+     * If a {@link #setBoundedChunkBuffer(int, ChunkOverflowPolicy) bounded 
+     * buffer} was set, then the chunks will be handled according to its 
+     * {@link ChunkOverflowPolicy}, which may cause the calling thread to
+     * block. 
      * 
      * @param chunks The chunks to publish
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     protected final void publish(V... chunks) 
     {
-        swingTaskWorker.doPublish(chunks);
+        ChunkChannel<V> currentChunkChannel = chunkChannel;
+        if (currentChunkChannel != null)
+        {
+            currentChunkChannel.publish(chunks);
+        }
+        else
+        {
+            swingTaskWorker.doPublish(chunks);
+        }
     }
     
     /**
@@ -390,9 +693,21 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      */
     private void callProcess(List<V> chunks)
     {
-        for (Consumer<List<V>> processCallback : processCallbacks)
+        List<V> unmodifiableChunks = null;
+        for (ProcessCallback<V> processCallback : processCallbacks)
         {
-            processCallback.accept(new ArrayList<V>(chunks));
+            if (processCallback.requiresMutableList)
+            {
+                processCallback.consumer.accept(new ArrayList<V>(chunks));
+            }
+            else
+            {
+                if (unmodifiableChunks == null)
+                {
+                    unmodifiableChunks = Collections.unmodifiableList(chunks);
+                }
+                processCallback.consumer.accept(unmodifiableChunks);
+            }
         }
         process(chunks);
     }
@@ -416,11 +731,23 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
     
     /**
      * Executes this task. Similarly to a SwingWorker, this method
-     * may only be called once.
+     * may only be called once.<br>
+     * <br>
+     * If an executor was set for this task via
+     * {@link SwingTaskExecutorBuilder#setExecutor(Executor)}, then this 
+     * task will be passed to this executor. Otherwise, it will be
+     * executed with the default executor of the underlying SwingWorker.
      */
     public final void execute() 
     {
-        swingTaskWorker.execute();
+        if (executor == null)
+        {
+            swingTaskWorker.execute();
+        }
+        else
+        {
+            executor.execute(this);
+        }
     }
     
     @Override
@@ -466,6 +793,11 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      */
     private void callDone()
     {
+        CompletableFuture<T> currentCompletion = completion;
+        if (currentCompletion != null)
+        {
+            complete(currentCompletion);
+        }
         for (Consumer<SwingTask<T, V>> doneCallback : doneCallbacks)
         {
             doneCallback.accept(this); // and get over it
@@ -473,6 +805,84 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         done();
     }
     
+    /**
+     * Returns a <code>CompletionStage</code> that is completed when this 
+     * task is done. It will be completed with the result of this task, 
+     * completed exceptionally with the exception that was thrown in the 
+     * {@link #doInBackground()} method, or completed exceptionally with
+     * a <code>CancellationException</code> when this task was cancelled. 
+     * <br>
+     * <br>
+     * When this task is done normally, the stage is completed on the 
+     * Event Dispatch Thread, before the {@link #addDoneCallback(Consumer) 
+     * done callbacks} are called. Non-async dependent stages will therefore
+     * be executed on the Event Dispatch Thread. The <code>Async</code> 
+     * methods of the stage may be used to continue with other executors, 
+     * for example, a background executor for further computations, or the 
+     * executor that is returned by 
+     * {@link SwingTaskExecutors#getEventDispatchThreadExecutor()}.<br>
+     * <br>
+     * This method may be called before or after this task is executed.
+     * Each call returns a new stage, so that completing the returned
+     * stage does not affect other stages.
+     * 
+     * @return The <code>CompletionStage</code>
+     */
+    public final CompletionStage<T> toCompletionStage()
+    {
+        CompletableFuture<T> currentCompletion = completion;
+        if (currentCompletion == null)
+        {
+            synchronized (this)
+            {
+                currentCompletion = completion;
+                if (currentCompletion == null)
+                {
+                    currentCompletion = new CompletableFuture<T>();
+                    completion = currentCompletion;
+                }
+            }
+        }
+        // The future may have been created after the done callbacks
+        // have been called. In this case, complete it immediately.
+        if (isDone())
+        {
+            complete(currentCompletion);
+        }
+        return currentCompletion.thenApply(result -> result);
+    }
+    
+    /**
+     * Complete the given future with the result of this task, which
+     * must be done when this method is called
+     * 
+     * @param future The future
+     */
+    private void complete(CompletableFuture<T> future)
+    {
+        if (future.isDone())
+        {
+            return;
+        }
+        try
+        {
+            future.complete(get());
+        }
+        catch (CancellationException e)
+        {
+            future.completeExceptionally(e);
+        }
+        catch (ExecutionException e)
+        {
+            future.completeExceptionally(e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+    }
+    
     /**
      * This method is executed on the <i>Event Dispatch Thread</i> after 
      * the {@link #doInBackground()} method is finished. The default
@@ -490,7 +900,9 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
     /**
      * Returns the {@link ProgressHandler} that may be used to inform
      * this task about the current progress during the execution of
-     * the {@link #doInBackground()} method. 
+     * the {@link #doInBackground()} method. The returned handler
+     * supports {@link ProgressHandler#split(double) splitting} into
+     * weighted child handlers.
      * 
      * @return The {@link ProgressHandler}
      */
@@ -499,6 +911,157 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         return progressHandler;
     }
 
+    /**
+     * Set the policy for throttling progress updates.<br>
+     * <br>
+     * When progress updates are throttled, then a call to 
+     * {@link #setProgress(double)} will only have an effect if the 
+     * progress changed by at least the given minimum delta, <b>and</b>
+     * at least the given number of milliseconds have passed since the 
+     * last update that was not dropped. Other updates are dropped 
+     * immediately, before any listeners are informed, so that the 
+     * progress may cheaply be reported even in inner loops. Updates to 
+     * a progress of 0, 1, or a value &lt;0 are never dropped. When the 
+     * task finishes, then the most recently requested progress is passed 
+     * on, even if it was dropped before.<br>
+     * <br>
+     * The policy also applies to the progress that is reported to the
+     * {@link #getProgressHandler() progress handler} and its children. 
+     * For children, the change of the aggregated progress that the 
+     * update would cause is compared to the minimum delta, and dropped 
+     * updates are not propagated to the parent handler at all.<br>
+     * <br>
+     * Passing 0 for both values disables throttling, which is the default.
+     * This method should be called before this task is executed.
+     * 
+     * @param minDelta The minimum delta
+     * @param minIntervalMillis The minimum interval, in milliseconds
+     * @throws IllegalArgumentException If any argument is negative
+     */
+    public final void setProgressThrottling(
+        double minDelta, long minIntervalMillis)
+    {
+        if (!(minDelta >= 0))
+        {
+            throw new IllegalArgumentException(
+                "The minDelta may not be negative, but is " + minDelta);
+        }
+        if (minIntervalMillis < 0)
+        {
+            throw new IllegalArgumentException(
+                "The minIntervalMillis may not be negative, but is " + 
+                minIntervalMillis);
+        }
+        this.throttlingMinDelta = minDelta;
+        this.throttlingMinIntervalNanos = 
+            TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.throttlingLastProgress = progress;
+        this.throttlingLastNanos = System.nanoTime();
+        this.throttlingRequestedProgress = progress;
+        this.throttlingProgressUpdates = 
+            minDelta > 0 || minIntervalMillis > 0;
+    }
+    
+    /**
+     * Returns whether the given progress update should be dropped due to
+     * the {@link #setProgressThrottling(double, long) throttling policy}.
+     * 
+     * @param progress The progress
+     * @return Whether the update should be dropped
+     */
+    private boolean isThrottled(double progress)
+    {
+        throttlingRequestedProgress = progress;
+        if (progress <= 0 || progress >= 1)
+        {
+            return false;
+        }
+        if (Math.abs(progress - throttlingLastProgress) < throttlingMinDelta)
+        {
+            return true;
+        }
+        long minIntervalNanos = throttlingMinIntervalNanos;
+        if (minIntervalNanos > 0)
+        {
+            long nanos = System.nanoTime();
+            if (nanos - throttlingLastNanos < minIntervalNanos)
+            {
+                return true;
+            }
+            throttlingLastNanos = nanos;
+        }
+        throttlingLastProgress = progress;
+        return false;
+    }
+    
+    /**
+     * Returns whether a progress update of a child of the 
+     * {@link #getProgressHandler() progress handler} that changes the
+     * aggregated progress by the given amount should be dropped due to 
+     * the {@link #setProgressThrottling(double, long) throttling policy}.
+     * 
+     * @param change The change of the aggregated progress
+     * @return Whether the update should be dropped
+     */
+    private boolean isThrottledChange(double change)
+    {
+        if (Math.abs(change) < throttlingMinDelta)
+        {
+            return true;
+        }
+        long minIntervalNanos = throttlingMinIntervalNanos;
+        if (minIntervalNanos > 0)
+        {
+            long nanos = System.nanoTime();
+            if (nanos - throttlingLastNanos < minIntervalNanos)
+            {
+                return true;
+            }
+            throttlingLastNanos = nanos;
+        }
+        return false;
+    }
+    
+    /**
+     * If progress updates are throttled, and the most recently requested 
+     * progress was dropped, then pass it on now
+     */
+    private void flushThrottledProgress()
+    {
+        if (throttlingProgressUpdates)
+        {
+            progressHandler.flush();
+            double requestedProgress = throttlingRequestedProgress;
+            if (requestedProgress != progress)
+            {
+                updateProgress(requestedProgress);
+            }
+        }
+    }
+    
+    /**
+     * Set whether progress updates should be coalesced.<br>
+     * <br>
+     * By default, each change of the {@link #setProgress(double) progress}
+     * or the {@link #setMessage(String) message} will cause one event to 
+     * be dispatched to the {@link ProgressListener}s on the Event Dispatch 
+     * Thread. When progress updates are coalesced, then there will be at 
+     * most one pending event for this task at any time, and this event 
+     * will deliver the latest progress and message when it is processed.
+     * Intermediate values may then be skipped, but the cost of reporting
+     * progress no longer depends on how often the progress is reported.<br>
+     * <br>
+     * Note that progress updates are always coalesced while the 
+     * {@link UpdatePump} is {@link UpdatePump#isEnabled() enabled}.
+     * 
+     * @param coalescingProgressUpdates Whether updates should be coalesced
+     */
+    public final void setCoalescingProgressUpdates(
+        boolean coalescingProgressUpdates)
+    {
+        this.coalescingProgressUpdates = coalescingProgressUpdates;
+    }
+
     /**
      * Set the current status message. If the message changed, all
      * {@link ProgressListener}s will be notified on the Event
@@ -517,12 +1080,13 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         {
             swingTaskListener.updated();
         }
-        if (SwingUtilities.isEventDispatchThread())
+        if (isCoalescingProgressUpdates())
         {
-            for (ProgressListener p : progressListeners)
-            {
-                p.messageChanged(message);
-            }
+            requestProgressDispatch();
+        }
+        else if (SwingUtilities.isEventDispatchThread())
+        {
+            dispatchMessage(message);
         }
         else
         {
@@ -531,10 +1095,7 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
                 @Override
                 public void run()
                 {
-                    for (ProgressListener p : progressListeners)
-                    {
-                        p.messageChanged(message);
-                    }
+                    dispatchMessage(message);
                 }
             });
         }
@@ -545,11 +1106,45 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
      * Set the current progress. This usually is a value between 0 and 1,
      * or a value &lt;0 if the progress is not known.
      * If the progress changed, all {@link ProgressListener}s will be 
-     * notified on the Event Dispatch Thread
+     * notified on the Event Dispatch Thread, unless the update is 
+     * dropped due to the {@link #setProgressThrottling(double, long)
+     * throttling policy}.
      * 
      * @param progress The current progress
      */
     protected final void setProgress(final double progress)
+    {
+        if (throttlingProgressUpdates && isThrottled(progress))
+        {
+            return;
+        }
+        updateProgress(progress);
+    }
+    
+    /**
+     * Set the current progress that was passed through the 
+     * {@link #getProgressHandler() progress handler}. Throttling was 
+     * already applied by the handler, before the progress was propagated.
+     * 
+     * @param progress The current progress
+     */
+    private void updateHandlerProgress(double progress)
+    {
+        if (throttlingProgressUpdates)
+        {
+            throttlingLastProgress = progress;
+            throttlingRequestedProgress = progress;
+        }
+        updateProgress(progress);
+    }
+    
+    /**
+     * Set the current progress, and notify all {@link ProgressListener}s
+     * if it changed
+     * 
+     * @param progress The current progress
+     */
+    private void updateProgress(final double progress)
     {
         if (this.progress == progress)
         {
@@ -560,12 +1155,13 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
         {
             swingTaskListener.updated();
         }
-        if (SwingUtilities.isEventDispatchThread())
+        if (isCoalescingProgressUpdates())
         {
-            for (ProgressListener p : progressListeners)
-            {
-                p.progressChanged(progress);
-            }
+            requestProgressDispatch();
+        }
+        else if (SwingUtilities.isEventDispatchThread())
+        {
+            dispatchProgress(progress);
         }
         else
         {
@@ -574,15 +1170,88 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
                 @Override
                 public void run()
                 {
-                    for (ProgressListener p : progressListeners)
-                    {
-                        p.progressChanged(progress);
-                    }
+                    dispatchProgress(progress);
                 }
             });
         }
     }
     
+    /**
+     * Returns whether progress updates are currently coalesced, either
+     * because this was {@link #setCoalescingProgressUpdates(boolean) set}
+     * for this task, or because the {@link UpdatePump} is enabled
+     * 
+     * @return Whether progress updates are coalesced
+     */
+    private boolean isCoalescingProgressUpdates()
+    {
+        return coalescingProgressUpdates || UpdatePump.isEnabled();
+    }
+    
+    /**
+     * Make sure that a {@link #progressDispatcher} is scheduled to be
+     * executed on the Event Dispatch Thread via the {@link UpdatePump}, 
+     * unless one is already pending.
+     */
+    private void requestProgressDispatch()
+    {
+        if (progressDispatchPending.compareAndSet(false, true))
+        {
+            UpdatePump.schedule(progressDispatcher);
+        }
+    }
+    
+    /**
+     * Dispatch the latest progress and message to the 
+     * {@link ProgressListener}s, if they differ from the ones that
+     * have been dispatched previously. Only to be called on the
+     * Event Dispatch Thread, by the {@link #progressDispatcher}.
+     */
+    private void dispatchLatestProgress()
+    {
+        progressDispatchPending.set(false);
+        String currentMessage = message;
+        if (!Objects.equals(dispatchedMessage, currentMessage))
+        {
+            dispatchMessage(currentMessage);
+        }
+        double currentProgress = progress;
+        if (dispatchedProgress != currentProgress)
+        {
+            dispatchProgress(currentProgress);
+        }
+    }
+    
+    /**
+     * Inform all {@link ProgressListener}s about the given message. 
+     * Only to be called on the Event Dispatch Thread.
+     * 
+     * @param message The message
+     */
+    private void dispatchMessage(String message)
+    {
+        dispatchedMessage = message;
+        for (ProgressListener p : progressListeners)
+        {
+            p.messageChanged(message);
+        }
+    }
+    
+    /**
+     * Inform all {@link ProgressListener}s about the given progress. 
+     * Only to be called on the Event Dispatch Thread.
+     * 
+     * @param progress The progress
+     */
+    private void dispatchProgress(double progress)
+    {
+        dispatchedProgress = progress;
+        for (ProgressListener p : progressListeners)
+        {
+            p.progressChanged(progress);
+        }
+    }
+    
     /**
      * Returns the current progress message
      * 
@@ -640,4 +1309,4 @@ public abstract class SwingTask<T, V> implements RunnableFuture<T>
 
     
     
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -78,10 +78,16 @@ class SwingTaskDialog extends JDialog
     private final boolean autoCloseWhenTaskFinished;
     
     /**
-     * The button for cancelling the task, or <code>null</code> if the
-     * task was not cancellable
+     * The button for cancelling the task. This is only visible if the
+     * task is cancelable.
      */
     private final JButton cancelButton;
+    
+    /**
+     * The {@link SwingTask} that is executed. This may be <code>null</code>
+     * for a dialog that is currently not used in a {@link SwingTaskDialogPool}
+     */
+    private SwingTask<?, ?> swingTask;
 
     /**
      * The button for closing the dialog, or <code>null</code> when the
@@ -89,6 +95,12 @@ class SwingTaskDialog extends JDialog
      */
     private final JButton closeButton;
     
+    /**
+     * The estimated remaining time of the task, in milliseconds, or a 
+     * value &lt;0 if it is not known
+     */
+    private long remainingMillis = -1;
+    
     /**
      * Creates a new task dialog
      * 
@@ -108,12 +120,13 @@ class SwingTaskDialog extends JDialog
      * when the task was finished.
      */
     SwingTaskDialog(Window parentWindow, Component parentComponent, 
-        String title, final SwingTask<?,?> swingTask, 
+        String title, SwingTask<?,?> swingTask, 
         boolean modal, boolean cancelable, 
         JComponent accessory, boolean autoCloseWhenTaskFinished)
     {
         super(parentWindow, title);
         
+        this.swingTask = swingTask;
         this.autoCloseWhenTaskFinished = autoCloseWhenTaskFinished;
         
         if (modal)
@@ -136,15 +149,7 @@ class SwingTaskDialog extends JDialog
         messageArea.setOpaque(false);
         messageArea.setWrapStyleWord(true);
         messageArea.setLineWrap(true);
-        String message = swingTask.getMessage();
-        if (message == null || message.trim().length() == 0)
-        {
-            messageArea.setText(" ");
-        }
-        else
-        {
-            messageArea.setText(message);
-        }
+        setInitialMessage(swingTask == null ? null : swingTask.getMessage());
         centerPanel.add(messageArea, BorderLayout.CENTER);
         if (accessory != null)
         {
@@ -161,23 +166,22 @@ class SwingTaskDialog extends JDialog
         
         buttonsPanel = new JPanel(new FlowLayout());
         southPanel.add(buttonsPanel, BorderLayout.SOUTH);
-        if (cancelable)
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(new ActionListener()
         {
-            cancelButton = new JButton("Cancel");
-            cancelButton.addActionListener(new ActionListener()
+            @Override
+            public void actionPerformed(ActionEvent e)
             {
-                @Override
-                public void actionPerformed(ActionEvent e)
+                SwingTask<?, ?> currentSwingTask = 
+                    SwingTaskDialog.this.swingTask;
+                if (currentSwingTask != null)
                 {
-                    swingTask.cancel(true);
+                    currentSwingTask.cancel(true);
                 }
-            });
-            buttonsPanel.add(cancelButton);
-        }
-        else
-        {
-            cancelButton = null;
-        }
+            }
+        });
+        cancelButton.setVisible(cancelable);
+        buttonsPanel.add(cancelButton);
         
         if (!autoCloseWhenTaskFinished)
         {
@@ -204,6 +208,80 @@ class SwingTaskDialog extends JDialog
         setLocationRelativeTo(parentComponent);
     }
     
+    /**
+     * Creates a new task dialog that may be stored in a 
+     * {@link SwingTaskDialogPool}. It will be closed automatically
+     * when the task is finished, and has no accessory. Before it
+     * is shown, it has to be {@link #reset reset} for a particular
+     * task.
+     * 
+     * @param parentWindow The parent window
+     * @param modal Whether the dialog should be modal
+     */
+    SwingTaskDialog(Window parentWindow, boolean modal)
+    {
+        this(parentWindow, null, "", null, modal, false, null, true);
+    }
+    
+    /**
+     * Reset this dialog so that it may be shown for the given task.
+     * This may only be called on a dialog that was created for a 
+     * {@link SwingTaskDialogPool}, while it is not visible.
+     * 
+     * @param parentComponent The parent component. The dialog will be placed
+     * relative to this component. If it is <code>null</code>, then the 
+     * dialog will be placed in the center of the screen
+     * @param title The title of the dialog
+     * @param swingTask The {@link SwingTask} that is executed
+     * @param cancelable Whether a button for canceling the {@link SwingTask}
+     * should be available
+     */
+    void reset(Component parentComponent, String title, 
+        SwingTask<?, ?> swingTask, boolean cancelable)
+    {
+        this.swingTask = swingTask;
+        setTitle(title);
+        setInitialMessage(swingTask == null ? null : swingTask.getMessage());
+        remainingMillis = -1;
+        progressBar.setValue(0);
+        progressBar.setString(null);
+        progressBar.setStringPainted(true);
+        progressBar.setIndeterminate(true);
+        cancelButton.setVisible(cancelable);
+        cancelButton.setEnabled(true);
+        pack();
+        setLocationRelativeTo(parentComponent);
+    }
+    
+    /**
+     * Remove the reference to the {@link SwingTask} that was executed,
+     * so that a dialog that is stored in a {@link SwingTaskDialogPool}
+     * does not prevent the task from being garbage collected
+     */
+    void clearSwingTask()
+    {
+        this.swingTask = null;
+    }
+    
+    /**
+     * Set the given message as the initial message in the message area.
+     * If the message is <code>null</code> or empty, then the message area
+     * will contain a single space, so that it has a proper height
+     * 
+     * @param message The message
+     */
+    private void setInitialMessage(String message)
+    {
+        if (message == null || message.trim().length() == 0)
+        {
+            messageArea.setText(" ");
+        }
+        else
+        {
+            messageArea.setText(message);
+        }
+    }
+    
     /**
      * Set the message that should be displayed in the message area.
      * If the message does not fit, then this dialog will be resized
@@ -244,9 +322,49 @@ class SwingTaskDialog extends JDialog
             progressBar.setIndeterminate(false);
             progressBar.setValue(percent);
             progressBar.setStringPainted(true);
-            progressBar.setString(percent+"%");
+            progressBar.setString(createProgressString(percent));
         }
     }
+    
+    /**
+     * Set the estimated remaining time that should be displayed in the 
+     * progress bar, in milliseconds. If the value is negative, then
+     * no remaining time will be displayed.
+     * 
+     * @param remainingMillis The remaining time
+     */
+    void setRemainingMillis(long remainingMillis)
+    {
+        this.remainingMillis = remainingMillis;
+        if (!progressBar.isIndeterminate())
+        {
+            progressBar.setString(
+                createProgressString(progressBar.getValue()));
+        }
+    }
+    
+    /**
+     * Create the string that should be displayed in the progress bar
+     * 
+     * @param percent The progress, in percent
+     * @return The string
+     */
+    private String createProgressString(int percent)
+    {
+        if (remainingMillis < 0 || percent >= 100)
+        {
+            return percent + "%";
+        }
+        long remainingSeconds = (remainingMillis + 999) / 1000;
+        if (remainingSeconds < 60)
+        {
+            return percent + "% (about " + remainingSeconds + "s remaining)";
+        }
+        long minutes = remainingSeconds / 60;
+        long seconds = remainingSeconds % 60;
+        return percent + "% (about " + minutes + "m " + 
+            (seconds < 10 ? "0" : "") + seconds + "s remaining)";
+    }
 
     /**
      * Will be called when the task was finished.
@@ -265,10 +383,7 @@ class SwingTaskDialog extends JDialog
         {
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
             closeButton.setEnabled(true);
-            if (cancelButton != null)
-            {
-                cancelButton.setEnabled(false);
-            }
+            cancelButton.setEnabled(false);
         }
             
     }
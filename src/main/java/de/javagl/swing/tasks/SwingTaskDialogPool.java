@@ -0,0 +1,230 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pool of {@link SwingTaskDialog} instances, for each parent window 
+ * and modality. The dialogs are created with the 
+ * {@link SwingTaskDialog#SwingTaskDialog(Window, boolean)} constructor,
+ * and are {@link SwingTaskDialog#reset reset} before they are reused.
+ * <p>
+ * When a parent window is closed, then all dialogs that have been 
+ * pooled for this window will be disposed and removed from the pool.
+ * <p>
+ * The methods of this class are only supposed to be called on the
+ * Event Dispatch Thread.
+ */
+class SwingTaskDialogPool
+{
+    /**
+     * The maximum number of idle dialogs that are kept for each 
+     * parent window and modality
+     */
+    private static final int MAX_IDLE_DIALOGS = 2;
+    
+    /**
+     * The idle dialogs for one parent window
+     */
+    private static class Entry
+    {
+        /**
+         * The modal dialogs
+         */
+        final Deque<SwingTaskDialog> modalDialogs = 
+            new ArrayDeque<SwingTaskDialog>();
+        
+        /**
+         * The non-modal dialogs
+         */
+        final Deque<SwingTaskDialog> nonModalDialogs = 
+            new ArrayDeque<SwingTaskDialog>();
+        
+        /**
+         * Returns the dialogs for the given modality
+         * 
+         * @param modal The modality
+         * @return The dialogs
+         */
+        Deque<SwingTaskDialog> get(boolean modal)
+        {
+            return modal ? modalDialogs : nonModalDialogs;
+        }
+    }
+    
+    /**
+     * The entries for the parent windows. The <code>null</code> key
+     * is used for dialogs without a parent window.
+     */
+    private static final Map<Window, Entry> entries = 
+        new HashMap<Window, Entry>();
+    
+    /**
+     * Obtain a dialog for the given parent window and modality. If 
+     * there is an idle dialog in the pool, then it will be removed
+     * from the pool and returned. Otherwise, a new dialog will be 
+     * created. The caller is responsible for 
+     * {@link SwingTaskDialog#reset resetting} the dialog.
+     * 
+     * @param parentWindow The parent window
+     * @param modal The modality
+     * @return The dialog
+     */
+    static SwingTaskDialog acquire(Window parentWindow, boolean modal)
+    {
+        Entry entry = entries.get(parentWindow);
+        if (entry != null)
+        {
+            SwingTaskDialog swingTaskDialog = entry.get(modal).pollFirst();
+            if (swingTaskDialog != null)
+            {
+                return swingTaskDialog;
+            }
+        }
+        return new SwingTaskDialog(parentWindow, modal);
+    }
+    
+    /**
+     * Return the given dialog to the pool. The dialog must have been
+     * obtained with {@link #acquire(Window, boolean)}, and will be 
+     * hidden. If the pool is already full, then the dialog will 
+     * be disposed.
+     * 
+     * @param swingTaskDialog The dialog
+     */
+    static void release(SwingTaskDialog swingTaskDialog)
+    {
+        swingTaskDialog.setVisible(false);
+        swingTaskDialog.clearSwingTask();
+        Window parentWindow = swingTaskDialog.getOwner();
+        boolean modal = swingTaskDialog.isModal();
+        if (parentWindow != null && !parentWindow.isDisplayable())
+        {
+            swingTaskDialog.dispose();
+            return;
+        }
+        Deque<SwingTaskDialog> dialogs = 
+            obtainEntry(parentWindow).get(modal);
+        if (dialogs.size() >= MAX_IDLE_DIALOGS)
+        {
+            swingTaskDialog.dispose();
+            return;
+        }
+        dialogs.addFirst(swingTaskDialog);
+    }
+    
+    /**
+     * Make sure that the pool contains at least one idle dialog for
+     * the given parent window and modality, creating a new one if 
+     * necessary
+     * 
+     * @param parentWindow The parent window
+     * @param modal The modality
+     */
+    static void prewarm(Window parentWindow, boolean modal)
+    {
+        if (parentWindow != null && !parentWindow.isDisplayable())
+        {
+            return;
+        }
+        Deque<SwingTaskDialog> dialogs = 
+            obtainEntry(parentWindow).get(modal);
+        if (dialogs.isEmpty())
+        {
+            dialogs.addFirst(new SwingTaskDialog(parentWindow, modal));
+        }
+    }
+    
+    /**
+     * Returns the entry for the given parent window, creating it if
+     * necessary. When a new entry is created for a parent window, 
+     * then a listener will be attached to the window, which disposes
+     * all dialogs of the entry when the window is closed.
+     * 
+     * @param parentWindow The parent window
+     * @return The entry
+     */
+    private static Entry obtainEntry(Window parentWindow)
+    {
+        Entry entry = entries.get(parentWindow);
+        if (entry == null)
+        {
+            entry = new Entry();
+            entries.put(parentWindow, entry);
+            if (parentWindow != null)
+            {
+                parentWindow.addWindowListener(new WindowAdapter()
+                {
+                    @Override
+                    public void windowClosed(WindowEvent e)
+                    {
+                        parentWindow.removeWindowListener(this);
+                        disposeAll(parentWindow);
+                    }
+                });
+            }
+        }
+        return entry;
+    }
+    
+    /**
+     * Remove the entry for the given parent window, and dispose all
+     * dialogs that it contained
+     * 
+     * @param parentWindow The parent window
+     */
+    private static void disposeAll(Window parentWindow)
+    {
+        Entry entry = entries.remove(parentWindow);
+        if (entry != null)
+        {
+            for (SwingTaskDialog swingTaskDialog : entry.modalDialogs)
+            {
+                swingTaskDialog.dispose();
+            }
+            for (SwingTaskDialog swingTaskDialog : entry.nonModalDialogs)
+            {
+                swingTaskDialog.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SwingTaskDialogPool()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
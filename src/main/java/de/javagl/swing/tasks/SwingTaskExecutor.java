@@ -26,13 +26,18 @@
  */
 package de.javagl.swing.tasks;
 
+import java.awt.Window;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
@@ -54,6 +59,23 @@ import de.javagl.swing.tasks.SwingTask.SwingTaskListener;
  */
 public final class SwingTaskExecutor<T>
 {
+    /**
+     * The decision state indicating that it was not yet decided whether
+     * the {@link SwingTaskView} should be shown
+     */
+    private static final int PENDING = 0;
+    
+    /**
+     * The decision state indicating that the {@link SwingTaskView} 
+     * should be shown
+     */
+    private static final int SHOW = 1;
+    
+    /**
+     * The decision state indicating that the {@link SwingTask} was finished
+     */
+    private static final int FINISHED = 2;
+    
     /**
      * The {@link SwingTask} that is executed
      */
@@ -65,30 +87,46 @@ public final class SwingTaskExecutor<T>
     private final SwingTaskView swingTaskView;
     
     /**
-     * A synchronization aid. When the {@link #execute()} method is called,
-     * the call will block the Event Dispatch Thread, waiting for this 
-     * latch to count to zero. It will count to zero either when the 
-     * {@link SwingTask} completes, or when the {@link SwingTaskView} 
-     * is actually shown. In this case, control will be returned to the 
-     * calling thread, and depending on the {@link #haveToShowView} flag,
-     * a {@link SwingTaskView} may be shown.
+     * The parent window of the {@link SwingTaskView}, whose input is
+     * blocked while the decision about showing the view is pending,
+     * when the task is {@link #executeAsync() executed asynchronously}.
+     * This may be <code>null</code>.
      */
-    private final CountDownLatch decisionWaiter = new CountDownLatch(1);
+    private final Window parentWindow;
     
     /**
-     * Whether showing the {@link SwingTaskView} was triggered
+     * Whether the task was started with {@link #executeAsync()}. In this
+     * case, the decision about showing the {@link SwingTaskView} is
+     * not awaited with the {@link #decisionWaiter}, but passed to
+     * {@link #resolveAsyncDecision()} on the Event Dispatch Thread.
      */
-    private boolean haveToShowView = false;
+    private volatile boolean asyncDecision;
     
     /**
-     * The lock protecting the {@link #wasFinished} state
+     * Whether the {@link #resolveAsyncDecision()} method was already
+     * called. Only accessed on the Event Dispatch Thread.
+     */
+    private boolean asyncDecisionResolved;
+    
+    /**
+     * A synchronization aid. When the {@link #execute()} method is called,
+     * the call will block the Event Dispatch Thread, waiting for this 
+     * latch to count to zero. It will count to zero either when the 
+     * {@link SwingTask} completes, or when the {@link SwingTaskView} 
+     * is actually shown. In this case, control will be returned to the 
+     * calling thread, and depending on the {@link #state}, a 
+     * {@link SwingTaskView} may be shown.
      */
-    private final Lock wasFinishedLock = new ReentrantLock(true);
+    private final CountDownLatch decisionWaiter = new CountDownLatch(1);
     
     /**
-     * Whether the task was finished
+     * The decision state. This is initially {@link #PENDING}. It may 
+     * change from {@link #PENDING} to {@link #SHOW} when showing the
+     * {@link SwingTaskView} is triggered, and from {@link #PENDING} or
+     * {@link #SHOW} to {@link #FINISHED} when the task is finished. 
+     * No other transitions are possible.
      */
-    private volatile boolean wasFinished = false;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
     
     /**
      * The time, in milliseconds, when the execution of the 
@@ -109,6 +147,25 @@ public final class SwingTaskExecutor<T>
      */
     private final int millisToPopup;
     
+    /**
+     * The policy for capturing the stack trace of where the 
+     * {@link SwingTask} was executed
+     */
+    private final StackTraceCapturePolicy stackTraceCapturePolicy;
+    
+    /**
+     * The {@link RemainingTimeEstimator} that is used for deciding whether
+     * the {@link SwingTaskView} should be shown
+     */
+    private final RemainingTimeEstimator remainingTimeEstimator;
+    
+    /**
+     * The future for the scheduled call to {@link #triggerShowView()} that
+     * will happen when the task takes longer than {@link #millisToPopup}.
+     * This will be cancelled when the task finishes earlier.
+     */
+    private volatile ScheduledFuture<?> popupFuture;
+    
     /**
      * A listener that will be attached to the internal SwingWorker of
      * the {@link SwingTask}, in order to hide the {@link SwingTaskView}
@@ -142,30 +199,22 @@ public final class SwingTaskExecutor<T>
         public void started()
         {
             startTimeMillis = System.currentTimeMillis();
-            Thread popupThread = new Thread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    try
-                    {
-                        Thread.sleep(millisToPopup);
-                    }
-                    catch (InterruptedException e)
-                    {
-                        Thread.currentThread().interrupt();
-                    }
-                    triggerShowView();
-                }
-            });
-            popupThread.setDaemon(true);
-            popupThread.start();
+            popupFuture = SwingTaskUtils.getScheduler().schedule(
+                () -> triggerShowView(), millisToPopup, TimeUnit.MILLISECONDS);
+            updateRemainingTimeEstimator();
             checkForShowView();
         }
 
         @Override
         public void updated()
         {
+            // After the decision was made, the estimator is only updated
+            // when the view is refreshed, in sampleRemainingMillis
+            if (state.get() != PENDING)
+            {
+                return;
+            }
+            updateRemainingTimeEstimator();
             checkForShowView();
         }
 
@@ -181,46 +230,107 @@ public final class SwingTaskExecutor<T>
      * 
      * @param swingTask The {@link SwingTask}
      * @param swingTaskView The {@link SwingTaskView}
+     * @param parentWindow The parent window of the {@link SwingTaskView}. 
+     * This may be <code>null</code>.
      * @param millisToDecideToPopup The milliseconds until the decision about
      * whether to show a {@link SwingTaskView} is made
      * @param millisToPopup The milliseconds that are required for a task
      * in order to show a {@link SwingTaskView}
+     * @param stackTraceCapturePolicy The {@link StackTraceCapturePolicy}
+     * @param remainingTimeEstimator The {@link RemainingTimeEstimator}
      */
     SwingTaskExecutor(
         SwingTask<T, ?> swingTask, 
         SwingTaskView swingTaskView,
+        Window parentWindow,
         int millisToDecideToPopup,
-        int millisToPopup)
+        int millisToPopup,
+        StackTraceCapturePolicy stackTraceCapturePolicy,
+        RemainingTimeEstimator remainingTimeEstimator)
     {
         this.swingTask = swingTask;
         this.swingTaskView = swingTaskView;
+        this.parentWindow = parentWindow;
         this.millisToDecideToPopup = millisToDecideToPopup;
         this.millisToPopup = millisToPopup;
+        this.stackTraceCapturePolicy = stackTraceCapturePolicy;
+        this.remainingTimeEstimator = remainingTimeEstimator;
         
         swingTask.addSwingWorkerPropertyChangeListener(stateListener);
         swingTask.setSwingTaskListener(swingTaskListener);
         
     }
     
+    /**
+     * Pass the time that has passed since the {@link #startTimeMillis}
+     * and the current progress of the {@link SwingTask} to the 
+     * {@link RemainingTimeEstimator}
+     */
+    private void updateRemainingTimeEstimator()
+    {
+        long passedMillis = System.currentTimeMillis() - startTimeMillis;
+        remainingTimeEstimator.update(passedMillis, swingTask.getProgress());
+    }
+    
+    /**
+     * Returns the estimated remaining time of the {@link SwingTask}, in 
+     * milliseconds, or a value &lt;0 if the remaining time is not known. 
+     * 
+     * @return The estimated remaining time
+     * @see SwingTaskExecutorBuilder#setRemainingTimeEstimator(
+     * RemainingTimeEstimator)
+     */
+    public long getRemainingMillis()
+    {
+        return remainingTimeEstimator.estimateRemainingMillis();
+    }
+    
+    /**
+     * Returns the estimated remaining time of the {@link SwingTask}, to 
+     * be displayed in the {@link SwingTaskView}. If the 
+     * {@link SwingTaskView} is supposed to be shown, then the 
+     * {@link RemainingTimeEstimator} will be updated before. (While the
+     * decision about showing the view is pending, the estimator is 
+     * updated with each progress update of the task). This is called 
+     * on the Event Dispatch Thread, whenever the progress of the 
+     * {@link SwingTask} is passed to the {@link SwingTaskView}.
+     * 
+     * @return The estimated remaining time
+     */
+    long sampleRemainingMillis()
+    {
+        if (state.get() == SHOW)
+        {
+            updateRemainingTimeEstimator();
+        }
+        return remainingTimeEstimator.estimateRemainingMillis();
+    }
+    
     /**
      * Check whether a {@link SwingTaskView} has to be shown. If the time that 
      * has passed since the {@link #startTimeMillis} is greater than the 
      * {@link #millisToDecideToPopup}, then the completion time of the
-     * task will be estimated based on the passed time and the current
-     * progress. If this time exceeds the {@link #millisToPopup}, then
-     * showing a {@link SwingTaskView} will be triggered
+     * task will be predicted, based on the passed time and the remaining
+     * time that is estimated by the {@link RemainingTimeEstimator}. If 
+     * this time exceeds the {@link #millisToPopup}, or the remaining time 
+     * is not known, then showing a {@link SwingTaskView} will be triggered
      */
     private void checkForShowView()
     {
-        double progress = swingTask.getProgress();
+        if (state.get() != PENDING)
+        {
+            return;
+        }
         long currentTimeMillis = System.currentTimeMillis();
-        long passedMillis = (int)(currentTimeMillis - startTimeMillis);
+        long passedMillis = currentTimeMillis - startTimeMillis;
         if (passedMillis >= millisToDecideToPopup) 
         {
-            int predictedCompletionTime = millisToPopup;
-            if (progress > 0)
+            long predictedCompletionTime = millisToPopup;
+            long remainingMillis = 
+                remainingTimeEstimator.estimateRemainingMillis();
+            if (remainingMillis >= 0)
             {
-                predictedCompletionTime = (int)(passedMillis / progress);
+                predictedCompletionTime = passedMillis + remainingMillis;
             }
             if (predictedCompletionTime >= millisToPopup) 
             {
@@ -230,53 +340,49 @@ public final class SwingTaskExecutor<T>
     }
     
     /**
-     * Set the flag that indicates that the {@link SwingTaskView} should be 
-     * shown, and count down the {@link #decisionWaiter} to cause the
-     * calling thread in {@link #doExecute()} to continue its work
+     * Set the {@link #state} to indicate that the {@link SwingTaskView} 
+     * should be shown, and count down the {@link #decisionWaiter} to cause 
+     * the calling thread in {@link #doExecute()} to continue its work. 
+     * If the task was already finished, or showing the view was already
+     * triggered, then this method has no effect.
      */
     private void triggerShowView()
     {
-        wasFinishedLock.lock();
-        try
+        if (state.compareAndSet(PENDING, SHOW))
         {
-            if (wasFinished)
+            decisionWaiter.countDown();
+            if (asyncDecision)
             {
-                return;
+                SwingUtilities.invokeLater(() -> resolveAsyncDecision());
             }
-            haveToShowView = true;
-            decisionWaiter.countDown();
-        }
-        finally
-        {
-            wasFinishedLock.unlock();
         }
     }
 
     /**
      * Notify the {@link #decisionWaiter} to indicate that the task
-     * was finished, and hide and dispose the {@link SwingTaskView} for the 
-     * case that it was shown.
+     * was finished, cancel the pending {@link #popupFuture}, and hide 
+     * and dispose the {@link SwingTaskView} for the case that it was 
+     * shown.
      * 
      * @param t An exception that was thrown by the {@link SwingTask},
      * or <code>null</code>
      */
     private void finish(Throwable t)
     {
-        wasFinishedLock.lock();
-        try
+        if (state.getAndSet(FINISHED) == FINISHED)
         {
-            if (wasFinished)
-            {
-                return;
-            }
-            wasFinished = true;
-            haveToShowView = false;
+            return;
         }
-        finally
+        decisionWaiter.countDown();
+        if (asyncDecision)
         {
-            wasFinishedLock.unlock();
+            SwingUtilities.invokeLater(() -> resolveAsyncDecision());
+        }
+        ScheduledFuture<?> currentPopupFuture = popupFuture;
+        if (currentPopupFuture != null)
+        {
+            currentPopupFuture.cancel(false);
         }
-        decisionWaiter.countDown();
         
         if (SwingUtilities.isEventDispatchThread())
         {
@@ -321,12 +427,7 @@ public final class SwingTaskExecutor<T>
         {
             throw new IllegalStateException("SwingTask is already done");
         }
-        
-        StackTraceElement[] stackTrace = 
-            Thread.currentThread().getStackTrace();
-        StackTraceElement schedulingStackTrace[] = 
-            Arrays.copyOfRange(stackTrace, 1, stackTrace.length);
-        swingTask.setSchedulingStackTrace(schedulingStackTrace);
+        captureSchedulingStackTrace();
         if (SwingUtilities.isEventDispatchThread())
         {
             doExecute();
@@ -357,6 +458,178 @@ public final class SwingTaskExecutor<T>
     }
     
     
+    /**
+     * Executes the {@link SwingTask} asynchronously.
+     * <p>
+     * In contrast to {@link #execute()}, this method returns immediately,
+     * and does not block the calling thread while the decision about 
+     * showing the {@link SwingTaskView} is pending. Instead, the mouse 
+     * and keyboard input of the parent window of the view is blocked 
+     * during this time. When it was decided to show the 
+     * {@link SwingTaskView}, it will be shown on the Event Dispatch Thread.
+     * <p>
+     * The returned future will be completed on the Event Dispatch Thread 
+     * when the task is done: It will be completed with the result of the
+     * task, completed exceptionally with the exception that was thrown 
+     * by the task, or cancelled when the task was cancelled. Cancelling
+     * the returned future will cancel the task.
+     * <p>
+     * If the task cannot be executed, for example, because the executor
+     * of the {@link SwingTask} rejected it, then the returned future will
+     * be completed exceptionally with the respective exception. When this
+     * method is called on the Event Dispatch Thread, the exception will 
+     * also be thrown by this method.
+     * 
+     * @return The future that is completed when the task is done
+     * @throws IllegalStateException If the {@link SwingTask} is 
+     * already {@link SwingTask#isDone() done}.
+     */
+    public CompletableFuture<T> executeAsync()
+    {
+        if (swingTask.isDone())
+        {
+            throw new IllegalStateException("SwingTask is already done");
+        }
+        captureSchedulingStackTrace();
+        
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        swingTask.addDoneCallback(t -> complete(future));
+        future.whenComplete((r, t) -> 
+        {
+            if (future.isCancelled())
+            {
+                swingTask.cancel(true);
+            }
+        });
+        asyncDecision = true;
+        if (SwingUtilities.isEventDispatchThread())
+        {
+            doExecuteAsync(future);
+        }
+        else
+        {
+            SwingUtilities.invokeLater(() -> doExecuteAsync(future));
+        }
+        return future;
+    }
+    
+    /**
+     * Complete the given future with the result of the {@link SwingTask},
+     * which is done when this method is called
+     * 
+     * @param future The future
+     */
+    private void complete(CompletableFuture<T> future)
+    {
+        try
+        {
+            future.complete(swingTask.get());
+        }
+        catch (CancellationException e)
+        {
+            future.cancel(false);
+        }
+        catch (ExecutionException e)
+        {
+            future.completeExceptionally(e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Capture the stack trace of the location where the {@link SwingTask}
+     * was executed, according to the {@link StackTraceCapturePolicy}
+     */
+    private void captureSchedulingStackTrace()
+    {
+        switch (stackTraceCapturePolicy)
+        {
+            case FULL:
+            {
+                StackTraceElement[] stackTrace = 
+                    Thread.currentThread().getStackTrace();
+                StackTraceElement schedulingStackTrace[] = 
+                    Arrays.copyOfRange(stackTrace, 1, stackTrace.length);
+                swingTask.setSchedulingStackTrace(schedulingStackTrace);
+                break;
+            }
+            case LAZY:
+            {
+                // The stack trace of this throwable starts at this method
+                // and will only be obtained when the task fails
+                swingTask.setSchedulingStackTraceSource(new Throwable());
+                break;
+            }
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Block the input of the {@link #parentWindow} and start the 
+     * {@link SwingTask#execute() SwingTask execution}, without waiting 
+     * for the decision about showing the {@link SwingTaskView}. This 
+     * method is called on the Event Dispatch Thread.<br>
+     * <br>
+     * If the {@link SwingTask} cannot be executed, for example, because
+     * its executor rejected it, then the input of the {@link #parentWindow}
+     * will be unblocked, the given future will be completed exceptionally,
+     * and the exception will be rethrown.
+     * 
+     * @param future The future that was returned by {@link #executeAsync()}
+     */
+    private void doExecuteAsync(CompletableFuture<T> future)
+    {
+        InputBlocker.block(parentWindow);
+        try
+        {
+            swingTask.execute();
+        }
+        catch (RuntimeException e)
+        {
+            state.set(FINISHED);
+            decisionWaiter.countDown();
+            ScheduledFuture<?> currentPopupFuture = popupFuture;
+            if (currentPopupFuture != null)
+            {
+                currentPopupFuture.cancel(false);
+            }
+            asyncDecisionResolved = true;
+            InputBlocker.unblock(parentWindow);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        if (state.get() != PENDING)
+        {
+            resolveAsyncDecision();
+        }
+    }
+    
+    /**
+     * Called on the Event Dispatch Thread when the decision about showing
+     * the {@link SwingTaskView} was made for a task that was executed 
+     * with {@link #executeAsync()}. This will unblock the input of the
+     * {@link #parentWindow}, and show the {@link SwingTaskView} if 
+     * necessary. Subsequent calls have no effect.
+     */
+    private void resolveAsyncDecision()
+    {
+        if (asyncDecisionResolved)
+        {
+            return;
+        }
+        asyncDecisionResolved = true;
+        InputBlocker.unblock(parentWindow);
+        if (state.get() == SHOW)
+        {
+            swingTaskView.show();
+        }
+    }
+    
     /**
      * The method that starts the {@link SwingTask#execute() SwingTask
      * execution}. This method is called on the Event Dispatch Thread,
@@ -369,7 +642,7 @@ public final class SwingTaskExecutor<T>
         try
         {
             decisionWaiter.await();
-            if (haveToShowView)
+            if (state.get() == SHOW)
             {
                 swingTaskView.show();
             }
@@ -29,6 +29,8 @@ package de.javagl.swing.tasks;
 import java.awt.Component;
 import java.awt.Window;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import javax.swing.SwingUtilities;
@@ -109,6 +111,22 @@ public final class SwingTaskExecutorBuilder<T>
      */
     private SwingTaskViewFactory swingTaskViewFactory; 
     
+    /**
+     * The policy for capturing the stack trace of where the 
+     * {@link SwingTask} was executed
+     */
+    private StackTraceCapturePolicy stackTraceCapturePolicy;
+    
+    /**
+     * The optional executor that will run the {@link SwingTask}
+     */
+    private Executor executor;
+    
+    /**
+     * The {@link RemainingTimeEstimator} for the {@link SwingTask}
+     */
+    private RemainingTimeEstimator remainingTimeEstimator;
+    
     /**
      * Starts the creation of a new {@link SwingTaskExecutor}
      * 
@@ -129,6 +147,9 @@ public final class SwingTaskExecutorBuilder<T>
         this.millisToPopup = 1000;
         this.uncaughtExceptionHandler = null;
         this.dialogUncaughtExceptionHandlerWasSet = false;
+        this.stackTraceCapturePolicy = StackTraceCapturePolicy.LAZY;
+        this.executor = null;
+        this.remainingTimeEstimator = null;
 
         this.swingTaskViewFactory = swingTaskViewConfig ->
             SwingTaskViews.create(swingTaskViewConfig);
@@ -228,7 +249,9 @@ public final class SwingTaskExecutorBuilder<T>
      * {@link #setMillisToDecideToPopup(int) decision delay} has
      * passed, the completion time of the task will be predicted,
      * based on the {@link ProgressHandler#setProgress(double) progress}
-     * that has been reported by the task so far. If the completion
+     * that has been reported by the task so far, using the 
+     * {@link #setRemainingTimeEstimator(RemainingTimeEstimator) remaining 
+     * time estimator}. If the completion
      * time is greater than the time that is passed to this method,
      * then a {@link SwingTaskView} will be shown. Also, when the task 
      * actually takes longer than the time that is passed to this method,
@@ -279,7 +302,8 @@ public final class SwingTaskExecutorBuilder<T>
     
     /**
      * Set the factory that will be called to create the {@link SwingTaskView}
-     * that will be displayed while the task is running.
+     * that will be displayed while the task is running. The factory will
+     * only be called when it was decided that the view should be shown.
      * 
      * @param swingTaskViewFactory The {@link SwingTaskViewFactory}
      * @return This builder
@@ -292,6 +316,72 @@ public final class SwingTaskExecutorBuilder<T>
     }
     
     
+    /**
+     * Set the policy for capturing the stack trace of the location where
+     * {@link SwingTaskExecutor#execute()} was called. This stack trace
+     * is used for the exceptions that are passed to the 
+     * {@link #setUncaughtExceptionHandler(UncaughtExceptionHandler) 
+     * uncaught exception handler}. The default is
+     * {@link StackTraceCapturePolicy#LAZY}.
+     * 
+     * @param stackTraceCapturePolicy The {@link StackTraceCapturePolicy}.
+     * May not be <code>null</code>.
+     * @return This builder
+     */
+    public SwingTaskExecutorBuilder<T> setStackTraceCapturePolicy(
+        StackTraceCapturePolicy stackTraceCapturePolicy)
+    {
+        this.stackTraceCapturePolicy = Objects.requireNonNull(
+            stackTraceCapturePolicy, 
+            "The stackTraceCapturePolicy may not be null");
+        return this;
+    }
+    
+    /**
+     * Set the executor that should run the {@link SwingTask}.<br>
+     * <br>
+     * By default, the task is executed with the executor of the 
+     * <code>SwingWorker</code> class, which uses a fixed maximum number 
+     * of threads that can not be configured. Passing an executor to this
+     * method allows running the task on a custom thread pool, for example
+     * one that was created with the <code>ObservableExecutors</code> class.
+     * The callbacks of the {@link SwingTask} will still be called on the 
+     * Event Dispatch Thread.<br>
+     * <br>
+     * If the given executor is <code>null</code>, then the default 
+     * executor will be used.
+     * 
+     * @param executor The executor
+     * @return This builder
+     */
+    public SwingTaskExecutorBuilder<T> setExecutor(Executor executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+    
+    /**
+     * Set the {@link RemainingTimeEstimator} that should be used for 
+     * estimating the remaining time of the {@link SwingTask}. The 
+     * estimate is used for deciding whether a {@link SwingTaskView}
+     * should be shown (see {@link #setMillisToPopup(int)}), and is 
+     * passed to the {@link SwingTaskView#setRemainingMillis(long)} 
+     * method.<br>
+     * <br>
+     * If the given estimator is <code>null</code>, then a new instance
+     * of the {@link RemainingTimeEstimators#create() default estimator} 
+     * will be used. The given instance should not be used for other tasks.
+     * 
+     * @param remainingTimeEstimator The {@link RemainingTimeEstimator}
+     * @return This builder
+     */
+    public SwingTaskExecutorBuilder<T> setRemainingTimeEstimator(
+        RemainingTimeEstimator remainingTimeEstimator)
+    {
+        this.remainingTimeEstimator = remainingTimeEstimator;
+        return this;
+    }
+    
     /**
      * Build the {@link SwingTaskExecutor} based on the current
      * configuration of this builder
@@ -311,13 +401,22 @@ public final class SwingTaskExecutorBuilder<T>
         {
             swingTask.setUncaughtExceptionHandler(uncaughtExceptionHandler);
         }
+        swingTask.setExecutor(executor);
         
         SwingTaskViewConfig swingTaskViewConfig = 
             new DefaultSwingTaskViewConfig(
                 swingTask, title, parentWindowToUse, 
                 parentComponent, modal, cancelable);
-        final SwingTaskView swingTaskView =
-            swingTaskViewFactory.create(swingTaskViewConfig);
+        final SwingTaskView swingTaskView = new LazySwingTaskView(
+            swingTaskViewFactory, swingTaskViewConfig);
+        final RemainingTimeEstimator remainingTimeEstimatorToUse =
+            remainingTimeEstimator != null ? remainingTimeEstimator :
+            RemainingTimeEstimators.create();
+        
+        final SwingTaskExecutor<T> swingTaskExecutor = 
+            new SwingTaskExecutor<T>(swingTask, swingTaskView, 
+                parentWindowToUse, millisToDecideToPopup, millisToPopup, 
+                stackTraceCapturePolicy, remainingTimeEstimatorToUse);
 
         ProgressListener progressListener = new ProgressListener()
         {
@@ -325,6 +424,8 @@ public final class SwingTaskExecutorBuilder<T>
             public void progressChanged(double progress)
             {
                 swingTaskView.setProgress(progress);
+                swingTaskView.setRemainingMillis(
+                    swingTaskExecutor.sampleRemainingMillis());
             }
             
             @Override
@@ -335,10 +436,6 @@ public final class SwingTaskExecutorBuilder<T>
         };
         swingTask.addProgressListener(progressListener);
         attachRemover(swingTask, progressListener);
-        
-        SwingTaskExecutor<T> swingTaskExecutor = 
-            new SwingTaskExecutor<T>(swingTask, swingTaskView, 
-                millisToDecideToPopup, millisToPopup);
         return swingTaskExecutor;
     }
     
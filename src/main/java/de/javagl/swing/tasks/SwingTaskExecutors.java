@@ -29,14 +29,37 @@ package de.javagl.swing.tasks;
 import java.awt.Component;
 import java.awt.Window;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import javax.swing.SwingUtilities;
+
 /**
  * Methods to create {@link SwingTaskExecutor} instances
  */
 public class SwingTaskExecutors
 {
+    /**
+     * The executor that executes commands on the Event Dispatch Thread
+     */
+    private static final Executor EVENT_DISPATCH_THREAD_EXECUTOR = 
+        new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            if (SwingUtilities.isEventDispatchThread())
+            {
+                command.run();
+            }
+            else
+            {
+                SwingUtilities.invokeLater(command);
+            }
+        }
+    };
+    
     /**
      * Start creating a {@link SwingTaskExecutor} using a 
      * {@link SwingTaskExecutorBuilder}. 
@@ -53,7 +76,12 @@ public class SwingTaskExecutors
      *     to pop up} will be 1000ms. After the decision delay has passed, 
      *     the completion time of the task will be predicated based on 
      *     the {@link ProgressHandler#setProgress(double) progress} that
-     *     was reported by the task. If the predicted completion time is
+     *     was reported by the task, using the 
+     *     {@link RemainingTimeEstimators#create() default} 
+     *     {@link SwingTaskExecutorBuilder#setRemainingTimeEstimator(
+     *     RemainingTimeEstimator) remaining time estimator}, which is 
+     *     based on a moving average of the progress rate. 
+     *     If the predicted completion time is
      *     more than this time, the dialog will be shown. If the task 
      *     actually takes more than this time, a dialog will be shown in
      *     any case
@@ -86,6 +114,11 @@ public class SwingTaskExecutors
      *     {@link SwingTaskExecutorBuilder#setUncaughtExceptionHandler(
      *     UncaughtExceptionHandler) uncaught exception handler}
      *   </li>
+     *   <li>
+     *     The stack trace of where the task was executed will be captured
+     *     {@link SwingTaskExecutorBuilder#setStackTraceCapturePolicy(
+     *     StackTraceCapturePolicy) lazily}
+     *   </li>
      * </ul>
      * 
      * 
@@ -170,6 +203,25 @@ public class SwingTaskExecutors
     }
     
     
+    /**
+     * Returns an executor that executes the given commands on the 
+     * Event Dispatch Thread. When the executor is called on the Event 
+     * Dispatch Thread, then the command will be executed immediately. 
+     * Otherwise, it will be passed to <code>SwingUtilities.invokeLater</code>.
+     * <br>
+     * <br>
+     * This may, for example, be used for continuing the 
+     * {@link SwingTask#toCompletionStage() completion stage} of a 
+     * {@link SwingTask} on the Event Dispatch Thread, after a step 
+     * that was executed in a background thread.
+     * 
+     * @return The executor
+     */
+    public static Executor getEventDispatchThreadExecutor()
+    {
+        return EVENT_DISPATCH_THREAD_EXECUTOR;
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
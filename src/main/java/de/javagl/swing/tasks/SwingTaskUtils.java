@@ -30,6 +30,8 @@ import java.awt.Component;
 import java.awt.Frame;
 import java.awt.Window;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import javax.swing.JFrame;
 
@@ -110,6 +112,51 @@ class SwingTaskUtils
     }
     
 
+    /**
+     * Returns the shared scheduler that may be used for timing-related 
+     * operations of {@link SwingTaskExecutor}s, like triggering the 
+     * {@link SwingTaskView} to be shown after a certain delay. The 
+     * scheduler is created when this method is called for the first
+     * time, and uses a single daemon thread.
+     * 
+     * @return The scheduler
+     */
+    static ScheduledExecutorService getScheduler()
+    {
+        return SchedulerHolder.SCHEDULER;
+    }
+    
+    /**
+     * Holder for the lazily created {@link SwingTaskUtils#getScheduler() 
+     * scheduler}
+     */
+    private static class SchedulerHolder
+    {
+        /**
+         * The scheduler
+         */
+        static final ScheduledExecutorService SCHEDULER = createScheduler();
+        
+        /**
+         * Create the scheduler
+         * 
+         * @return The scheduler
+         */
+        private static ScheduledExecutorService createScheduler()
+        {
+            ScheduledThreadPoolExecutor scheduler = 
+                new ScheduledThreadPoolExecutor(1, runnable -> 
+                {
+                    Thread thread = new Thread(runnable, 
+                        "SwingTaskScheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation
      */
@@ -57,6 +57,20 @@ public interface SwingTaskView
      */
     void setMessage(String message);
     
+    /**
+     * Set the estimated remaining time of the {@link SwingTask}, in 
+     * milliseconds, as computed by the {@link RemainingTimeEstimator}
+     * of the {@link SwingTaskExecutor}. This will be a value &lt;0 when 
+     * the remaining time is not known. The default implementation 
+     * does nothing.
+     * 
+     * @param remainingMillis The estimated remaining time
+     */
+    default void setRemainingMillis(long remainingMillis)
+    {
+        // Empty default implementation
+    }
+    
     /**
      * Will be called when the task finished. This will usually cause the
      * view to be made invisible and disposed.
@@ -33,9 +33,11 @@ public interface SwingTaskViewFactory
 {
     /**
      * Creates a new {@link SwingTaskView} based on the given 
-     * {@link SwingTaskViewConfig}. This method will be called by a 
-     * {@link SwingTaskExecutorBuilder} when the {@link SwingTaskExecutor} is 
-     * created for a particular {@link SwingTask}. The 
+     * {@link SwingTaskViewConfig}. This method will be called on the
+     * Event Dispatch Thread by a {@link SwingTaskExecutor}, when it 
+     * decided that a view should be shown for a particular 
+     * {@link SwingTask}. For tasks that finish before this decision
+     * is made, this method will not be called at all. The 
      * {@link SwingTaskExecutor} will then call the methods of the 
      * {@link SwingTaskView} to update the view depending on the execution
      * status of the task.<br>
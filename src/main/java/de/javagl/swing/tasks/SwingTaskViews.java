@@ -26,7 +26,10 @@
  */
 package de.javagl.swing.tasks;
 
+import java.awt.Window;
+
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 
 /**
  * Methods to create {@link SwingTaskView} instances.
@@ -81,6 +84,52 @@ public class SwingTaskViews
             swingTaskViewConfig, accessory, autoCloseWhenTaskFinished);
     }
     
+    /**
+     * Create a default {@link SwingTaskView} with the given configuration,
+     * whose dialog is taken from a pool.<br>
+     * <br>
+     * The pool contains dialogs for each parent window and modality. When 
+     * the task is finished, then the dialog is hidden and returned to the 
+     * pool, so that it may be reused for another task, instead of creating,
+     * laying out and disposing a new dialog for each task. The dialogs 
+     * of a parent window are disposed when the parent window is closed.
+     * A view that is returned by this method will be closed when the task 
+     * was finished, and has no accessory.<br>
+     * <br>
+     * This method must be called on the Event Dispatch Thread. This is 
+     * always the case when it is used as the 
+     * {@link SwingTaskExecutorBuilder#setSwingTaskViewFactory(
+     * SwingTaskViewFactory) view factory} of a {@link SwingTaskExecutor}.
+     * 
+     * @param swingTaskViewConfig The {@link SwingTaskViewConfig}
+     * @return The {@link SwingTaskView}
+     * @see #prewarm(Window, boolean)
+     */
+    public static SwingTaskView createPooled(
+        SwingTaskViewConfig swingTaskViewConfig)
+    {
+        return new PooledSwingTaskView(swingTaskViewConfig);
+    }
+    
+    /**
+     * Schedule the creation of a dialog for the given parent window and 
+     * modality on the Event Dispatch Thread, and put it into the pool of
+     * dialogs that are used by {@link #createPooled(SwingTaskViewConfig)},
+     * unless the pool already contains such a dialog. This may, for 
+     * example, be called after the main window of an application was 
+     * shown, so that the cost of creating the first dialog does not 
+     * delay the first task that shows a dialog. 
+     * 
+     * @param parentWindow The parent window. This may be <code>null</code>
+     * for dialogs without a parent window.
+     * @param modal Whether the dialog should be modal
+     */
+    public static void prewarm(Window parentWindow, boolean modal)
+    {
+        SwingUtilities.invokeLater(
+            () -> SwingTaskDialogPool.prewarm(parentWindow, modal));
+    }
+    
     
     /**
      * Private constructor to prevent instantiation
@@ -0,0 +1,239 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * A shared pump for updates of the user interface that are caused by 
+ * background tasks.<br>
+ * <br>
+ * By default, this pump is disabled, and all updates that are 
+ * {@link #schedule(Runnable) scheduled} will simply be passed to
+ * <code>SwingUtilities.invokeLater</code>. When the pump is enabled by 
+ * setting a positive number of {@link #setUpdatesPerSecond(int) updates
+ * per second}, then a single Swing <code>Timer</code> will collect all 
+ * pending updates, and execute them in one batch per frame. This limits
+ * the number of events that have to be processed on the Event Dispatch
+ * Thread, regardless of how often the tasks report their progress.<br>
+ * <br>
+ * While the pump is enabled, the progress updates of all {@link SwingTask}
+ * instances will be coalesced (see 
+ * {@link SwingTask#setCoalescingProgressUpdates(boolean)}), and 
+ * delivered via this pump.
+ */
+public final class UpdatePump
+{
+    /**
+     * The updates that are waiting to be executed
+     */
+    private static final Queue<Runnable> pendingUpdates = 
+        new ConcurrentLinkedQueue<Runnable>();
+    
+    /**
+     * The number of elements in the {@link #pendingUpdates} queue
+     */
+    private static final AtomicInteger pendingUpdateCount = 
+        new AtomicInteger();
+    
+    /**
+     * Whether the {@link #timer} is running or about to be started
+     */
+    private static final AtomicBoolean timerRunning = new AtomicBoolean();
+    
+    /**
+     * The number of updates per second. If this is not positive, then
+     * the pump is disabled.
+     */
+    private static volatile int updatesPerSecond = 0;
+    
+    /**
+     * The timer that executes the pending updates. Only accessed on
+     * the Event Dispatch Thread. Created lazily.
+     */
+    private static Timer timer;
+    
+    /**
+     * Set the number of updates per second. Typical values are 30 or 60.
+     * If the given value is not positive, then the pump will be disabled, 
+     * and all updates will be passed to <code>SwingUtilities.invokeLater</code>
+     * directly. 
+     * 
+     * @param newUpdatesPerSecond The number of updates per second
+     */
+    public static void setUpdatesPerSecond(int newUpdatesPerSecond)
+    {
+        updatesPerSecond = newUpdatesPerSecond;
+        SwingUtilities.invokeLater(() -> 
+        {
+            if (timer != null && newUpdatesPerSecond > 0)
+            {
+                timer.setDelay(computeDelayMillis(newUpdatesPerSecond));
+            }
+            // Make sure that updates which have been scheduled while the 
+            // pump was enabled are not lost when it is disabled
+            executePendingUpdates();
+        });
+    }
+    
+    /**
+     * Returns the number of updates per second. If this is not positive,
+     * then the pump is disabled.
+     * 
+     * @return The number of updates per second
+     */
+    public static int getUpdatesPerSecond()
+    {
+        return updatesPerSecond;
+    }
+    
+    /**
+     * Returns whether this pump is enabled, meaning that a positive 
+     * number of {@link #setUpdatesPerSecond(int) updates per second}
+     * has been set
+     * 
+     * @return Whether this pump is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return updatesPerSecond > 0;
+    }
+    
+    /**
+     * Schedule the given update to be executed on the Event Dispatch Thread.
+     * If this pump is {@link #isEnabled() enabled}, then the update will be
+     * executed with the next batch of updates. Otherwise, it will be
+     * passed to <code>SwingUtilities.invokeLater</code>.<br>
+     * <br>
+     * Callers are responsible for not scheduling the same update 
+     * multiple times before it has been executed, usually by keeping
+     * track of whether their update is currently pending.
+     * 
+     * @param update The update
+     */
+    public static void schedule(Runnable update)
+    {
+        if (!isEnabled())
+        {
+            SwingUtilities.invokeLater(update);
+            return;
+        }
+        pendingUpdates.add(update);
+        pendingUpdateCount.incrementAndGet();
+        if (timerRunning.compareAndSet(false, true))
+        {
+            SwingUtilities.invokeLater(() -> startTimer());
+        }
+    }
+    
+    /**
+     * Start the {@link #timer}, creating it if necessary. Only to be 
+     * called on the Event Dispatch Thread.
+     */
+    private static void startTimer()
+    {
+        if (timer == null)
+        {
+            int delayMillis = computeDelayMillis(updatesPerSecond);
+            timer = new Timer(delayMillis, e -> pump());
+            timer.setCoalesce(true);
+        }
+        timer.start();
+    }
+    
+    /**
+     * Execute all pending updates, and stop the timer if no further 
+     * updates are pending. Called by the {@link #timer} on the Event 
+     * Dispatch Thread.
+     */
+    private static void pump()
+    {
+        executePendingUpdates();
+        if (pendingUpdates.isEmpty())
+        {
+            timer.stop();
+            timerRunning.set(false);
+            
+            // Updates may have been scheduled after the queue was found
+            // to be empty, but before the flag was reset 
+            if (!pendingUpdates.isEmpty() && 
+                timerRunning.compareAndSet(false, true))
+            {
+                timer.start();
+            }
+        }
+    }
+    
+    /**
+     * Execute the updates that are currently pending. Updates that are
+     * scheduled while this method is running will be executed in the
+     * next batch. Only to be called on the Event Dispatch Thread.
+     */
+    private static void executePendingUpdates()
+    {
+        int n = pendingUpdateCount.get();
+        for (int i = 0; i < n; i++)
+        {
+            Runnable update = pendingUpdates.poll();
+            if (update == null)
+            {
+                break;
+            }
+            pendingUpdateCount.decrementAndGet();
+            update.run();
+        }
+    }
+    
+    /**
+     * Compute the timer delay for the given number of updates per second
+     * 
+     * @param updatesPerSecond The updates per second
+     * @return The delay, in milliseconds
+     */
+    private static int computeDelayMillis(int updatesPerSecond)
+    {
+        if (updatesPerSecond <= 0)
+        {
+            return 1000;
+        }
+        return Math.max(1, 1000 / updatesPerSecond);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private UpdatePump()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
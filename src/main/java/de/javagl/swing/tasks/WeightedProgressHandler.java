@@ -0,0 +1,362 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of a {@link ProgressHandler} that supports 
+ * {@link ProgressHandler#split(double) splitting} into weighted child 
+ * handlers.<br>
+ * <br>
+ * The root handler forwards the aggregated progress and all messages
+ * to a target handler. As long as no child handlers have been created,
+ * the progress that is set in the root is passed to the target 
+ * unmodified. Each child handler stores the last progress that was 
+ * reported to it, and adds the weighted change of its progress 
+ * to the progress of the root. The progress values are stored as the 
+ * bits of <code>double</code> values in <code>AtomicLong</code> 
+ * instances, so that children may be updated from different threads 
+ * without locking.<br>
+ * <br>
+ * Once child handlers have been created, the aggregated progress that
+ * is passed to the target is clamped to the range [0,1]. Values that 
+ * are less than {@link #COMPLETION_EPSILON} below 1.0 are passed to the
+ * target as 1.0, so that rounding errors in the sum of the weighted 
+ * changes do not prevent the progress from reaching completion.<br>
+ * <br>
+ * An optional {@link Throttle} may be passed to the root handler. It is
+ * consulted before any progress is propagated, so that dropped updates
+ * do not cause any further work. A child that drops an update keeps 
+ * the requested progress, and it is applied when the root handler is 
+ * {@link #flush() flushed}.
+ */
+class WeightedProgressHandler implements ProgressHandler
+{
+    /**
+     * Interface for a policy that decides whether progress updates
+     * should be dropped
+     */
+    interface Throttle
+    {
+        /**
+         * Returns whether an update of the progress to the given value
+         * should be dropped
+         * 
+         * @param progress The progress
+         * @return Whether the update should be dropped
+         */
+        boolean isThrottled(double progress);
+        
+        /**
+         * Returns whether an update that changes the aggregated progress 
+         * by the given amount should be dropped
+         * 
+         * @param change The change of the aggregated progress
+         * @return Whether the update should be dropped
+         */
+        boolean isThrottledChange(double change);
+    }
+    
+    /**
+     * The bits of the <code>double</code> value that indicates that 
+     * there is no pending progress in a child handler
+     */
+    private static final long NO_PROGRESS_BITS = 
+        Double.doubleToLongBits(-1.0);
+    
+    /**
+     * The tolerance for the aggregated progress of child handlers. 
+     * Values that are at most this far below 1.0 are treated as 1.0.
+     */
+    static final double COMPLETION_EPSILON = 1e-9;
+    
+    /**
+     * The root handler. This is <code>null</code> for the root itself.
+     */
+    private final WeightedProgressHandler root;
+    
+    /**
+     * The target that receives the progress and messages. This is 
+     * only used in the root handler.
+     */
+    private final ProgressHandler target;
+    
+    /**
+     * The optional {@link Throttle}. This is only used in the root handler.
+     */
+    private final Throttle throttle;
+    
+    /**
+     * The weight of this handler, relative to the root
+     */
+    private final double absoluteWeight;
+    
+    /**
+     * The bits of the <code>double</code> value of the progress. For the
+     * root, this is the aggregated progress. For children, this is 
+     * the last progress value that was reported to the child.
+     */
+    private final AtomicLong progressBits;
+    
+    /**
+     * Whether child handlers have been created from this root handler.
+     * As long as this is <code>false</code>, the progress is passed 
+     * directly to the target.
+     */
+    private volatile boolean split;
+    
+    /**
+     * The bits of the progress that was most recently dropped by a child 
+     * handler, or {@link #NO_PROGRESS_BITS}. Only used in children.
+     */
+    private final AtomicLong pendingProgressBits;
+    
+    /**
+     * Whether this child handler is contained in the pending children
+     * of the root handler
+     */
+    private final AtomicBoolean pending;
+    
+    /**
+     * The child handlers that dropped progress updates that have not
+     * been applied yet. Only used in the root handler.
+     */
+    private final Queue<WeightedProgressHandler> pendingChildren;
+    
+    /**
+     * Creates a new root handler that forwards the progress and messages
+     * to the given target
+     * 
+     * @param target The target
+     * @param throttle The optional {@link Throttle}
+     */
+    WeightedProgressHandler(ProgressHandler target, Throttle throttle)
+    {
+        this(null, target, throttle, 1.0);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param root The root handler
+     * @param target The target
+     * @param throttle The optional {@link Throttle}
+     * @param absoluteWeight The weight relative to the root
+     */
+    private WeightedProgressHandler(WeightedProgressHandler root, 
+        ProgressHandler target, Throttle throttle, double absoluteWeight)
+    {
+        this.root = root;
+        this.target = target;
+        this.throttle = throttle;
+        this.absoluteWeight = absoluteWeight;
+        this.progressBits = new AtomicLong(Double.doubleToLongBits(0.0));
+        this.pendingProgressBits = new AtomicLong(NO_PROGRESS_BITS);
+        this.pending = new AtomicBoolean(false);
+        this.pendingChildren = (root == null) ? 
+            new ConcurrentLinkedQueue<WeightedProgressHandler>() : null;
+    }
+
+    @Override
+    public void setMessage(String message)
+    {
+        if (root == null)
+        {
+            target.setMessage(message);
+        }
+        else
+        {
+            root.setMessage(message);
+        }
+    }
+
+    @Override
+    public void setProgress(double progress)
+    {
+        if (root == null)
+        {
+            if (throttle != null && throttle.isThrottled(progress))
+            {
+                return;
+            }
+            if (progress >= 0)
+            {
+                long bits = Double.doubleToLongBits(progress);
+                if (!split)
+                {
+                    progressBits.lazySet(bits);
+                    target.setProgress(progress);
+                    return;
+                }
+                progressBits.set(bits);
+                publish(bits);
+            }
+            else
+            {
+                target.setProgress(progress);
+            }
+            return;
+        }
+        if (!(progress >= 0))
+        {
+            return;
+        }
+        double clampedProgress = Math.min(1.0, progress);
+        Throttle rootThrottle = root.throttle;
+        if (rootThrottle != null)
+        {
+            if (clampedProgress > 0 && clampedProgress < 1)
+            {
+                double previousProgress = 
+                    Double.longBitsToDouble(progressBits.get());
+                double change = 
+                    absoluteWeight * (clampedProgress - previousProgress);
+                if (rootThrottle.isThrottledChange(change))
+                {
+                    pendingProgressBits.set(
+                        Double.doubleToLongBits(clampedProgress));
+                    if (pending.compareAndSet(false, true))
+                    {
+                        root.pendingChildren.add(this);
+                    }
+                    return;
+                }
+            }
+            pendingProgressBits.set(NO_PROGRESS_BITS);
+        }
+        applyProgress(clampedProgress);
+    }
+    
+    /**
+     * Store the given progress in this child handler, and add the
+     * weighted change to the progress of the root
+     * 
+     * @param progress The progress, between 0 and 1
+     */
+    private void applyProgress(double progress)
+    {
+        long previousBits = progressBits.getAndSet(
+            Double.doubleToLongBits(progress));
+        double previousProgress = Double.longBitsToDouble(previousBits);
+        double delta = progress - previousProgress;
+        if (delta != 0.0)
+        {
+            root.addProgress(absoluteWeight * delta);
+        }
+    }
+    
+    /**
+     * Apply the progress values that have been dropped by child handlers
+     * of this root handler due to the {@link Throttle}, and not been
+     * replaced by later updates
+     */
+    void flush()
+    {
+        WeightedProgressHandler child = null;
+        while ((child = pendingChildren.poll()) != null)
+        {
+            child.pending.set(false);
+            long bits = child.pendingProgressBits.getAndSet(NO_PROGRESS_BITS);
+            if (bits != NO_PROGRESS_BITS)
+            {
+                child.applyProgress(Double.longBitsToDouble(bits));
+            }
+        }
+    }
+    
+    /**
+     * Add the given value to the aggregated progress of this root 
+     * handler, and pass the result to the target
+     * 
+     * @param delta The value to add
+     */
+    private void addProgress(double delta)
+    {
+        while (true)
+        {
+            long oldBits = progressBits.get();
+            double oldProgress = Double.longBitsToDouble(oldBits);
+            double newProgress = oldProgress + delta;
+            long newBits = Double.doubleToLongBits(newProgress);
+            if (progressBits.compareAndSet(oldBits, newBits))
+            {
+                publish(newBits);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Pass the progress that is given by the given bits to the target.
+     * If the aggregated progress was changed by another thread in the
+     * meantime, then the latest value is passed to the target, so that 
+     * the target never keeps an outdated value. The value is clamped 
+     * to [0,1], and values that are close to 1.0 are snapped to 1.0.
+     * 
+     * @param bits The bits of the progress value
+     */
+    private void publish(long bits)
+    {
+        long publishedBits = bits;
+        while (true)
+        {
+            double progress = Double.longBitsToDouble(publishedBits);
+            if (progress >= 1.0 - COMPLETION_EPSILON)
+            {
+                target.setProgress(1.0);
+            }
+            else
+            {
+                target.setProgress(Math.max(0.0, progress));
+            }
+            long currentBits = progressBits.get();
+            if (currentBits == publishedBits)
+            {
+                return;
+            }
+            publishedBits = currentBits;
+        }
+    }
+    
+    @Override
+    public ProgressHandler split(double weight)
+    {
+        if (!(weight >= 0))
+        {
+            throw new IllegalArgumentException(
+                "The weight must not be negative, but is " + weight);
+        }
+        WeightedProgressHandler actualRoot = (root == null) ? this : root;
+        actualRoot.split = true;
+        return new WeightedProgressHandler(
+            actualRoot, target, null, absoluteWeight * weight);
+    }
+}
@@ -33,6 +33,26 @@ import java.awt.Color;
  */
 class DefaultTaskViewHandler implements TaskViewHandler
 {
+    /**
+     * The color for tasks that have been scheduled
+     */
+    private static final Color SCHEDULED_COLOR = Color.DARK_GRAY;
+    
+    /**
+     * The color for tasks that are processed
+     */
+    private static final Color PROCESSING_COLOR = new Color(255, 128, 0);
+    
+    /**
+     * The color for tasks that completed successfully
+     */
+    private static final Color FINISHED_COLOR = new Color(0, 128, 0);
+    
+    /**
+     * The color for tasks that failed
+     */
+    private static final Color FAILED_COLOR = Color.RED;
+    
     /**
      * Whether tasks that have been completed successfully should be removed
      * from the view
@@ -54,14 +74,14 @@ class DefaultTaskViewHandler implements TaskViewHandler
     public void scheduled(Object task, TaskView taskView)
     {
         taskView.setText("scheduled : "+stringFor(task));
-        taskView.setForegroundColor(Color.DARK_GRAY);
+        taskView.setForegroundColor(SCHEDULED_COLOR);
     }
 
     @Override
     public void beforeExecute(Object task, TaskView taskView)
     {
         taskView.setText("processing: " + stringFor(task));
-        taskView.setForegroundColor(new Color(255, 128, 0));
+        taskView.setForegroundColor(PROCESSING_COLOR);
     }
 
     @Override
@@ -71,7 +91,7 @@ class DefaultTaskViewHandler implements TaskViewHandler
         if (throwable == null)
         {
             taskView.setText("finished  : "+stringFor(task));
-            taskView.setForegroundColor(new Color(0,128,0));
+            taskView.setForegroundColor(FINISHED_COLOR);
             if (removeSuccessfullyFinishedTasks)
             {
                 taskView.remove();
@@ -81,7 +101,7 @@ class DefaultTaskViewHandler implements TaskViewHandler
         {
             taskView.setText("failed    : " + stringFor(task) + 
                 ", error: " + throwable.getMessage());
-            taskView.setForegroundColor(Color.RED);
+            taskView.setForegroundColor(FAILED_COLOR);
             taskView.setThrowable(throwable);
         }
     }
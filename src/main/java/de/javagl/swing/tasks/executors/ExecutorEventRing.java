@@ -0,0 +1,448 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A preallocated ring buffer for the events of an 
+ * {@link ObservableExecutorService}, which are written by multiple 
+ * producer threads, and dispatched to the {@link ExecutorObserver}s
+ * by a single drain thread.<br>
+ * <br>
+ * The events are stored as records in parallel arrays. A producer claims 
+ * a sequence number, writes the fields of the record into the slot for
+ * this sequence number, and publishes the slot. The drain thread 
+ * processes all published events in batches, in the order of their 
+ * sequence numbers.<br>
+ * <br>
+ * When the ring is full, the producers wait with an increasing backoff 
+ * until the drain thread has released slots. When the ring stays full 
+ * for longer than {@link #MAX_CLAIM_WAIT_NANOS}, or when the drain 
+ * thread itself publishes an event while the ring is full (for example,
+ * because an observer submits a task), then the event is dispatched 
+ * synchronously on the publishing thread, so that no events are lost 
+ * and no thread waits forever. Such an event may be dispatched before 
+ * events that are still contained in the ring.
+ */
+final class ExecutorEventRing
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(ExecutorEventRing.class.getName());
+    
+    /**
+     * The event type for {@link ExecutorObserver#scheduled(Runnable)}
+     */
+    static final int SCHEDULED = 0;
+    
+    /**
+     * The event type for 
+     * {@link ExecutorObserver#beforeExecute(Thread, Runnable)}
+     */
+    static final int BEFORE_EXECUTE = 1;
+    
+    /**
+     * The event type for 
+     * {@link ExecutorObserver#afterExecute(Runnable, Throwable, long, long)}
+     */
+    static final int AFTER_EXECUTE = 2;
+    
+    /**
+     * The event type for {@link ExecutorObserver#tasksFinished()}
+     */
+    static final int TASKS_FINISHED = 3;
+    
+    /**
+     * The maximum time that a producer waits for a free slot before it
+     * dispatches its event synchronously
+     */
+    static final long MAX_CLAIM_WAIT_NANOS = 
+        TimeUnit.MILLISECONDS.toNanos(100);
+    
+    /**
+     * The initial time that a producer parks while waiting for a free slot
+     */
+    private static final long MIN_BACKOFF_NANOS = 
+        TimeUnit.MICROSECONDS.toNanos(1);
+    
+    /**
+     * The maximum time that a producer parks while waiting for a free slot
+     */
+    private static final long MAX_BACKOFF_NANOS = 
+        TimeUnit.MILLISECONDS.toNanos(1);
+    
+    /**
+     * A counter for the names of the drain threads
+     */
+    private static final AtomicLong threadCounter = new AtomicLong();
+    
+    /**
+     * The {@link ObservableExecutorService} that dispatches the events
+     */
+    private final ObservableExecutorService executorService;
+    
+    /**
+     * The capacity of this ring, which is a power of two
+     */
+    private final int capacity;
+    
+    /**
+     * The mask for computing the slot index from a sequence number
+     */
+    private final int mask;
+    
+    /**
+     * The event types
+     */
+    private final int[] types;
+    
+    /**
+     * The runnables of the events
+     */
+    private final Runnable[] runnables;
+    
+    /**
+     * The threads of the events
+     */
+    private final Thread[] threads;
+    
+    /**
+     * The throwables of the events
+     */
+    private final Throwable[] throwables;
+    
+    /**
+     * The queue wait times of the events
+     */
+    private final long[] queueWaitNanos;
+    
+    /**
+     * The execution times of the events
+     */
+    private final long[] executionNanos;
+    
+    /**
+     * The sequence number that was published in each slot
+     */
+    private final AtomicLongArray published;
+    
+    /**
+     * The next sequence number that will be claimed by a producer
+     */
+    private final AtomicLong claimSequence;
+    
+    /**
+     * The number of events that have been dispatched by the drain thread
+     */
+    private volatile long consumedSequence;
+    
+    /**
+     * Whether the drain thread is about to park or parked
+     */
+    private volatile boolean drainThreadParked;
+    
+    /**
+     * Whether this ring was shut down
+     */
+    private volatile boolean shutdown;
+    
+    /**
+     * Whether a warning was already logged because an event had to be 
+     * dispatched synchronously
+     */
+    private volatile boolean synchronousDispatchLogged;
+    
+    /**
+     * The drain thread
+     */
+    private final Thread drainThread;
+    
+    /**
+     * Creates a new ring and starts its drain thread
+     * 
+     * @param executorService The {@link ObservableExecutorService}
+     * @param minimumCapacity The minimum capacity. The actual capacity
+     * will be the next power of two.
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    ExecutorEventRing(
+        ObservableExecutorService executorService, int minimumCapacity)
+    {
+        if (minimumCapacity <= 0 || minimumCapacity > (1 << 30))
+        {
+            throw new IllegalArgumentException(
+                "The capacity must be in [1, 2^30], but is " 
+                + minimumCapacity);
+        }
+        this.executorService = executorService;
+        this.capacity = 
+            1 << (32 - Integer.numberOfLeadingZeros(minimumCapacity - 1));
+        this.mask = capacity - 1;
+        this.types = new int[capacity];
+        this.runnables = new Runnable[capacity];
+        this.threads = new Thread[capacity];
+        this.throwables = new Throwable[capacity];
+        this.queueWaitNanos = new long[capacity];
+        this.executionNanos = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+        {
+            published.set(i, -1);
+        }
+        this.claimSequence = new AtomicLong();
+        this.drainThread = new Thread(this::drain, 
+            "ExecutorEventRing-" + threadCounter.getAndIncrement());
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+    
+    /**
+     * Publish the given event. If the ring is full, then this method 
+     * will wait until the drain thread has released a slot. If no slot
+     * can be claimed (see {@link #claim()}), then the event will be 
+     * dispatched on the calling thread.
+     * 
+     * @param type The event type
+     * @param runnable The runnable
+     * @param thread The thread
+     * @param throwable The throwable
+     * @param eventQueueWaitNanos The queue wait time
+     * @param eventExecutionNanos The execution time
+     */
+    void publish(int type, Runnable runnable, Thread thread, 
+        Throwable throwable, long eventQueueWaitNanos, 
+        long eventExecutionNanos)
+    {
+        long sequence = claim();
+        if (sequence < 0)
+        {
+            dispatch(type, runnable, thread, throwable, 
+                eventQueueWaitNanos, eventExecutionNanos);
+            return;
+        }
+        int index = (int)sequence & mask;
+        types[index] = type;
+        runnables[index] = runnable;
+        threads[index] = thread;
+        throwables[index] = throwable;
+        queueWaitNanos[index] = eventQueueWaitNanos;
+        executionNanos[index] = eventExecutionNanos;
+        published.set(index, sequence);
+        if (drainThreadParked)
+        {
+            LockSupport.unpark(drainThread);
+        }
+    }
+    
+    /**
+     * Claim the slot for the next event. If the ring is full, then this 
+     * method will park the calling thread with an increasing backoff,
+     * until the drain thread has released a slot.<br>
+     * <br>
+     * This method returns -1 if the ring is full and the calling thread
+     * is the drain thread, if the ring stays full for longer than 
+     * {@link #MAX_CLAIM_WAIT_NANOS}, or if the ring was shut down and 
+     * the drain thread terminated. 
+     * 
+     * @return The sequence number of the slot, or -1
+     */
+    private long claim()
+    {
+        long backoffNanos = 0;
+        long deadline = 0;
+        while (true)
+        {
+            long sequence = claimSequence.get();
+            if (sequence - capacity < consumedSequence)
+            {
+                if (claimSequence.compareAndSet(sequence, sequence + 1))
+                {
+                    return sequence;
+                }
+                continue;
+            }
+            if (Thread.currentThread() == drainThread)
+            {
+                // The drain thread would wait for itself
+                return -1;
+            }
+            if (shutdown && !drainThread.isAlive())
+            {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (backoffNanos == 0)
+            {
+                deadline = now + MAX_CLAIM_WAIT_NANOS;
+                backoffNanos = MIN_BACKOFF_NANOS;
+            }
+            else if (now - deadline >= 0)
+            {
+                if (!synchronousDispatchLogged)
+                {
+                    synchronousDispatchLogged = true;
+                    logger.warning("The event ring stayed full for more " 
+                        + "than " + TimeUnit.NANOSECONDS.toMillis(
+                            MAX_CLAIM_WAIT_NANOS) + " ms. Dispatching " 
+                        + "events synchronously until the observers " 
+                        + "have caught up.");
+                }
+                return -1;
+            }
+            else
+            {
+                backoffNanos = Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+            }
+            LockSupport.parkNanos(this, backoffNanos);
+        }
+    }
+    
+    /**
+     * Shut down this ring. The drain thread will dispatch all events 
+     * that have been published until now, and then terminate.
+     */
+    void shutdown()
+    {
+        shutdown = true;
+        LockSupport.unpark(drainThread);
+    }
+    
+    /**
+     * The method that is executed by the drain thread
+     */
+    private void drain()
+    {
+        long next = 0;
+        while (true)
+        {
+            int index = (int)next & mask;
+            if (published.get(index) != next)
+            {
+                if (shutdown)
+                {
+                    if (claimSequence.get() == next)
+                    {
+                        return;
+                    }
+                    // A claimed slot is about to be published
+                    Thread.yield();
+                    continue;
+                }
+                drainThreadParked = true;
+                if (published.get(index) != next && !shutdown)
+                {
+                    LockSupport.park(this);
+                }
+                drainThreadParked = false;
+                continue;
+            }
+            do
+            {
+                dispatchSlot(index);
+                next++;
+                consumedSequence = next;
+                index = (int)next & mask;
+            }
+            while (published.get(index) == next);
+        }
+    }
+    
+    /**
+     * Dispatch the event in the given slot to the observers, and clear
+     * the references that are stored in the slot
+     * 
+     * @param index The slot index
+     */
+    private void dispatchSlot(int index)
+    {
+        Runnable runnable = runnables[index];
+        Thread thread = threads[index];
+        Throwable throwable = throwables[index];
+        runnables[index] = null;
+        threads[index] = null;
+        throwables[index] = null;
+        try
+        {
+            dispatch(types[index], runnable, thread, throwable, 
+                queueWaitNanos[index], executionNanos[index]);
+        }
+        catch (Throwable t)
+        {
+            // The drain thread must not die, because the producers 
+            // would wait for it forever when the ring is full
+            logger.log(Level.SEVERE, 
+                "Error when dispatching event: " + t.getMessage(), t);
+        }
+    }
+    
+    /**
+     * Dispatch the given event to the observers
+     * 
+     * @param type The event type
+     * @param runnable The runnable
+     * @param thread The thread
+     * @param throwable The throwable
+     * @param eventQueueWaitNanos The queue wait time
+     * @param eventExecutionNanos The execution time
+     */
+    private void dispatch(int type, Runnable runnable, Thread thread, 
+        Throwable throwable, long eventQueueWaitNanos, 
+        long eventExecutionNanos)
+    {
+        switch (type)
+        {
+            case SCHEDULED:
+                executorService.notifyScheduled(runnable);
+                break;
+                
+            case BEFORE_EXECUTE:
+                executorService.notifyBeforeExecute(thread, runnable);
+                break;
+                
+            case AFTER_EXECUTE:
+                executorService.notifyAfterExecute(runnable, throwable, 
+                    eventQueueWaitNanos, eventExecutionNanos);
+                break;
+                
+            case TASKS_FINISHED:
+                executorService.notifyTasksFinished();
+                break;
+                
+            default:
+                logger.warning("Invalid event type: " + type);
+                break;
+        }
+    }
+}
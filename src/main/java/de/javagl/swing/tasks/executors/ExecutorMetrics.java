@@ -0,0 +1,523 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * An {@link ExecutorObserver} that collects metrics about the tasks that
+ * are executed in an {@link ObservableExecutorService}.<br>
+ * <br>
+ * Instances of this class may be created with 
+ * {@link #attach(ObservableExecutorService)}. They count the submitted, 
+ * completed, failed and cancelled tasks, and record the queue wait times 
+ * and execution times of the tasks in histograms, globally and for each 
+ * {@link ProgressTask#getDescription() description} of 
+ * {@link ProgressTask}s. The metrics may be read with the methods of the 
+ * {@link ExecutorMetricsMXBean} interface, and may be published as a 
+ * platform MBean with {@link #registerMBean(String)}.<br>
+ * <br>
+ * The counters are striped, so that recording the metrics causes little 
+ * contention between the threads of the executor service. 
+ */
+public final class ExecutorMetrics 
+    implements ExecutorObserver, ExecutorMetricsMXBean
+{
+    /**
+     * The maximum number of distinct task descriptions for which 
+     * separate metrics are recorded. The metrics for all further 
+     * descriptions are combined under {@link #OTHER_DESCRIPTION}.
+     */
+    private static final int MAX_DESCRIPTIONS = 256;
+    
+    /**
+     * The key for the metrics of tasks whose description exceeded the
+     * {@link #MAX_DESCRIPTIONS}
+     */
+    private static final String OTHER_DESCRIPTION = "(other)";
+    
+    /**
+     * The metrics for one task description
+     */
+    private static class DescriptionMetrics
+    {
+        /**
+         * The number of finished tasks
+         */
+        final LongAdder finishedCount = new LongAdder();
+        
+        /**
+         * The number of failed tasks
+         */
+        final LongAdder failedCount = new LongAdder();
+        
+        /**
+         * The queue wait times
+         */
+        final LatencyHistogram queueWaitNanos = new LatencyHistogram();
+        
+        /**
+         * The execution times
+         */
+        final LatencyHistogram executionNanos = new LatencyHistogram();
+    }
+    
+    /**
+     * The {@link ObservableExecutorService}
+     */
+    private final ObservableExecutorService executorService;
+    
+    /**
+     * The number of submitted tasks
+     */
+    private final LongAdder submittedCount;
+    
+    /**
+     * The number of completed tasks
+     */
+    private final LongAdder completedCount;
+    
+    /**
+     * The number of failed tasks
+     */
+    private final LongAdder failedCount;
+    
+    /**
+     * The number of cancelled tasks
+     */
+    private final LongAdder cancelledCount;
+    
+    /**
+     * The queue wait times of all tasks
+     */
+    private final LatencyHistogram queueWaitNanos;
+    
+    /**
+     * The execution times of all tasks
+     */
+    private final LatencyHistogram executionNanos;
+    
+    /**
+     * The metrics for each task description
+     */
+    private final Map<String, DescriptionMetrics> descriptionMetrics;
+    
+    /**
+     * The time stamp of the last throughput sample
+     */
+    private long throughputSampleNanos;
+    
+    /**
+     * The number of finished tasks at the last throughput sample
+     */
+    private long throughputSampleCount;
+    
+    /**
+     * The throughput that was computed at the last sample
+     */
+    private double throughput;
+    
+    /**
+     * The name under which this instance was registered as an MBean,
+     * or <code>null</code> if it was not registered
+     */
+    private ObjectName objectName;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param executorService The {@link ObservableExecutorService}
+     */
+    private ExecutorMetrics(ObservableExecutorService executorService)
+    {
+        this.executorService = executorService;
+        this.submittedCount = new LongAdder();
+        this.completedCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.cancelledCount = new LongAdder();
+        this.queueWaitNanos = new LatencyHistogram();
+        this.executionNanos = new LatencyHistogram();
+        this.descriptionMetrics = 
+            new ConcurrentHashMap<String, DescriptionMetrics>();
+        this.throughputSampleNanos = System.nanoTime();
+    }
+    
+    /**
+     * Create a new instance that collects the metrics of the given
+     * {@link ObservableExecutorService}, and attach it to the executor
+     * service as an {@link ExecutorObserver}
+     * 
+     * @param executorService The {@link ObservableExecutorService}
+     * @return The {@link ExecutorMetrics}
+     */
+    public static ExecutorMetrics attach(
+        ObservableExecutorService executorService)
+    {
+        Objects.requireNonNull(executorService, 
+            "The executorService may not be null");
+        ExecutorMetrics executorMetrics = new ExecutorMetrics(executorService);
+        executorService.addExecutorObserver(executorMetrics);
+        return executorMetrics;
+    }
+    
+    /**
+     * Detach this instance from the executor service, so that it no 
+     * longer collects metrics, and unregister it from the platform 
+     * MBean server if it was {@link #registerMBean(String) registered}
+     */
+    public void detach()
+    {
+        executorService.removeExecutorObserver(this);
+        unregisterMBean();
+    }
+    
+    /**
+     * Register this instance at the platform MBean server, under an 
+     * object name with the domain <code>de.javagl.swing.tasks</code>, 
+     * the type <code>ExecutorMetrics</code>, and the given name.
+     * 
+     * @param name The name, for example, the name of the executor service
+     * @return The object name under which this instance was registered
+     * @throws IllegalStateException If this instance was already 
+     * registered, or the registration failed
+     */
+    public synchronized ObjectName registerMBean(String name)
+    {
+        if (objectName != null)
+        {
+            throw new IllegalStateException(
+                "Already registered as " + objectName);
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            ObjectName newObjectName = new ObjectName(
+                "de.javagl.swing.tasks:type=ExecutorMetrics,name=" + 
+                ObjectName.quote(name));
+            mBeanServer.registerMBean(this, newObjectName);
+            objectName = newObjectName;
+            return newObjectName;
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException(
+                "Could not register the MBean: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Unregister this instance from the platform MBean server. If it 
+     * was not {@link #registerMBean(String) registered}, then this 
+     * method has no effect.
+     */
+    public synchronized void unregisterMBean()
+    {
+        if (objectName == null)
+        {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mBeanServer.unregisterMBean(objectName);
+        }
+        catch (JMException e)
+        {
+            // The MBean may already have been unregistered externally
+        }
+        objectName = null;
+    }
+    
+    @Override
+    public void scheduled(Runnable r)
+    {
+        submittedCount.increment();
+    }
+
+    @Override
+    public void beforeExecute(Thread t, Runnable r)
+    {
+        // Nothing to do here
+    }
+
+    @Override
+    public void afterExecute(Runnable r, Throwable t)
+    {
+        afterExecute(r, t, -1, -1);
+    }
+    
+    @Override
+    public void afterExecute(Runnable r, Throwable t, 
+        long queueWaitNanos, long executionNanos)
+    {
+        boolean failed = false;
+        if (t == null)
+        {
+            completedCount.increment();
+        }
+        else if (t instanceof CancellationException)
+        {
+            cancelledCount.increment();
+        }
+        else
+        {
+            failedCount.increment();
+            failed = true;
+        }
+        this.queueWaitNanos.record(queueWaitNanos);
+        this.executionNanos.record(executionNanos);
+        
+        ProgressTask progressTask = 
+            ObservableExecutors.getInnerTask(r, ProgressTask.class);
+        if (progressTask != null)
+        {
+            DescriptionMetrics metrics = 
+                obtainDescriptionMetrics(progressTask.getDescription());
+            metrics.finishedCount.increment();
+            if (failed)
+            {
+                metrics.failedCount.increment();
+            }
+            metrics.queueWaitNanos.record(queueWaitNanos);
+            metrics.executionNanos.record(executionNanos);
+        }
+    }
+    
+    /**
+     * Returns the {@link DescriptionMetrics} for the given description,
+     * creating them if necessary
+     * 
+     * @param description The description
+     * @return The {@link DescriptionMetrics}
+     */
+    private DescriptionMetrics obtainDescriptionMetrics(String description)
+    {
+        String key = String.valueOf(description);
+        DescriptionMetrics metrics = descriptionMetrics.get(key);
+        if (metrics != null)
+        {
+            return metrics;
+        }
+        if (descriptionMetrics.size() >= MAX_DESCRIPTIONS)
+        {
+            key = OTHER_DESCRIPTION;
+        }
+        return descriptionMetrics.computeIfAbsent(
+            key, k -> new DescriptionMetrics());
+    }
+
+    @Override
+    public void tasksFinished()
+    {
+        // Nothing to do here
+    }
+    
+    @Override
+    public long getSubmittedCount()
+    {
+        return submittedCount.sum();
+    }
+
+    @Override
+    public long getCompletedCount()
+    {
+        return completedCount.sum();
+    }
+
+    @Override
+    public long getFailedCount()
+    {
+        return failedCount.sum();
+    }
+
+    @Override
+    public long getCancelledCount()
+    {
+        return cancelledCount.sum();
+    }
+
+    @Override
+    public int getQueueDepth()
+    {
+        return executorService.getQueue().size();
+    }
+
+    @Override
+    public int getActiveThreadCount()
+    {
+        return executorService.getActiveCount();
+    }
+
+    @Override
+    public synchronized double getThroughputPerSecond()
+    {
+        long nanos = System.nanoTime();
+        long elapsedNanos = nanos - throughputSampleNanos;
+        long count = completedCount.sum() + failedCount.sum() + 
+            cancelledCount.sum();
+        if (elapsedNanos >= TimeUnit.SECONDS.toNanos(1))
+        {
+            double elapsedSeconds = elapsedNanos / 1e9;
+            throughput = (count - throughputSampleCount) / elapsedSeconds;
+            throughputSampleNanos = nanos;
+            throughputSampleCount = count;
+        }
+        return throughput;
+    }
+
+    @Override
+    public long getQueueWaitNanosP50()
+    {
+        return valueAtQuantile(queueWaitNanos, 0.5);
+    }
+
+    @Override
+    public long getQueueWaitNanosP99()
+    {
+        return valueAtQuantile(queueWaitNanos, 0.99);
+    }
+
+    @Override
+    public long getQueueWaitNanosP999()
+    {
+        return valueAtQuantile(queueWaitNanos, 0.999);
+    }
+
+    @Override
+    public long getExecutionNanosP50()
+    {
+        return valueAtQuantile(executionNanos, 0.5);
+    }
+
+    @Override
+    public long getExecutionNanosP99()
+    {
+        return valueAtQuantile(executionNanos, 0.99);
+    }
+
+    @Override
+    public long getExecutionNanosP999()
+    {
+        return valueAtQuantile(executionNanos, 0.999);
+    }
+
+    @Override
+    public Map<String, Long> getFinishedCountsByDescription()
+    {
+        return collect(m -> m.finishedCount.sum());
+    }
+
+    @Override
+    public Map<String, Long> getFailedCountsByDescription()
+    {
+        return collect(m -> m.failedCount.sum());
+    }
+
+    @Override
+    public Map<String, Long> getQueueWaitNanosP99ByDescription()
+    {
+        return collect(m -> valueAtQuantile(m.queueWaitNanos, 0.99));
+    }
+
+    @Override
+    public Map<String, Long> getExecutionNanosP50ByDescription()
+    {
+        return collect(m -> valueAtQuantile(m.executionNanos, 0.5));
+    }
+
+    @Override
+    public Map<String, Long> getExecutionNanosP99ByDescription()
+    {
+        return collect(m -> valueAtQuantile(m.executionNanos, 0.99));
+    }
+
+    @Override
+    public Map<String, Long> getExecutionNanosP999ByDescription()
+    {
+        return collect(m -> valueAtQuantile(m.executionNanos, 0.999));
+    }
+    
+    /**
+     * Returns the value at the given quantile of the given histogram, 
+     * computed from its most recent {@link LatencyHistogram.Snapshot}, 
+     * so that reading several values in a short time does not copy 
+     * the bucket counts for each value.
+     * 
+     * @param histogram The {@link LatencyHistogram}
+     * @param quantile The quantile
+     * @return The value
+     */
+    private static long valueAtQuantile(
+        LatencyHistogram histogram, double quantile)
+    {
+        return histogram.getSnapshot().getValueAtQuantile(quantile);
+    }
+    
+    /**
+     * Create a sorted map from the task descriptions to the values that
+     * the given function computes from their {@link DescriptionMetrics}
+     * 
+     * @param function The function
+     * @return The map
+     */
+    private Map<String, Long> collect(
+        ToLongFunction<DescriptionMetrics> function)
+    {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, DescriptionMetrics> entry : 
+            descriptionMetrics.entrySet())
+        {
+            result.put(entry.getKey(), 
+                function.applyAsLong(entry.getValue()));
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ExecutorMetrics[" 
+            + "submitted=" + getSubmittedCount() 
+            + ", completed=" + getCompletedCount() 
+            + ", failed=" + getFailedCount() 
+            + ", cancelled=" + getCancelledCount() 
+            + ", queueDepth=" + getQueueDepth() 
+            + ", activeThreads=" + getActiveThreadCount() + "]";
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link ExecutorMetrics}, which allows
+ * reading the metrics of an {@link ObservableExecutorService} via JMX,
+ * for example, with JConsole.<br>
+ * <br>
+ * All durations are given in nanoseconds. The maps that contain values
+ * for each task description use the {@link ProgressTask#getDescription() 
+ * description} of {@link ProgressTask}s as their keys.
+ */
+public interface ExecutorMetricsMXBean
+{
+    /**
+     * Returns the number of tasks that have been submitted
+     * 
+     * @return The number of tasks
+     */
+    long getSubmittedCount();
+    
+    /**
+     * Returns the number of tasks that have been completed normally
+     * 
+     * @return The number of tasks
+     */
+    long getCompletedCount();
+    
+    /**
+     * Returns the number of tasks that caused an exception
+     * 
+     * @return The number of tasks
+     */
+    long getFailedCount();
+    
+    /**
+     * Returns the number of tasks that have been cancelled
+     * 
+     * @return The number of tasks
+     */
+    long getCancelledCount();
+    
+    /**
+     * Returns the number of tasks that are waiting in the queue of the
+     * executor service
+     * 
+     * @return The queue depth
+     */
+    int getQueueDepth();
+    
+    /**
+     * Returns the approximate number of threads that are actively 
+     * executing tasks
+     * 
+     * @return The number of threads
+     */
+    int getActiveThreadCount();
+    
+    /**
+     * Returns the number of tasks that have been finished per second,
+     * measured over the time since this value was read the last time, 
+     * but at least over one second
+     * 
+     * @return The throughput
+     */
+    double getThroughputPerSecond();
+    
+    /**
+     * Returns the median of the times that tasks have been waiting in
+     * the queue
+     * 
+     * @return The time
+     */
+    long getQueueWaitNanosP50();
+    
+    /**
+     * Returns the 99th percentile of the times that tasks have been 
+     * waiting in the queue
+     * 
+     * @return The time
+     */
+    long getQueueWaitNanosP99();
+    
+    /**
+     * Returns the 99.9th percentile of the times that tasks have been 
+     * waiting in the queue
+     * 
+     * @return The time
+     */
+    long getQueueWaitNanosP999();
+    
+    /**
+     * Returns the median of the execution times of the tasks
+     * 
+     * @return The time
+     */
+    long getExecutionNanosP50();
+    
+    /**
+     * Returns the 99th percentile of the execution times of the tasks
+     * 
+     * @return The time
+     */
+    long getExecutionNanosP99();
+    
+    /**
+     * Returns the 99.9th percentile of the execution times of the tasks
+     * 
+     * @return The time
+     */
+    long getExecutionNanosP999();
+    
+    /**
+     * Returns the number of finished tasks, for each task description
+     * 
+     * @return The numbers of tasks
+     */
+    Map<String, Long> getFinishedCountsByDescription();
+    
+    /**
+     * Returns the number of failed tasks, for each task description
+     * 
+     * @return The numbers of tasks
+     */
+    Map<String, Long> getFailedCountsByDescription();
+    
+    /**
+     * Returns the 99th percentile of the queue wait times, for each 
+     * task description
+     * 
+     * @return The times
+     */
+    Map<String, Long> getQueueWaitNanosP99ByDescription();
+    
+    /**
+     * Returns the median of the execution times, for each task description
+     * 
+     * @return The times
+     */
+    Map<String, Long> getExecutionNanosP50ByDescription();
+    
+    /**
+     * Returns the 99th percentile of the execution times, for each 
+     * task description
+     * 
+     * @return The times
+     */
+    Map<String, Long> getExecutionNanosP99ByDescription();
+    
+    /**
+     * Returns the 99.9th percentile of the execution times, for each 
+     * task description
+     * 
+     * @return The times
+     */
+    Map<String, Long> getExecutionNanosP999ByDescription();
+}
@@ -67,6 +67,27 @@ public interface ExecutorObserver
      */
     void afterExecute(Runnable r, Throwable t);
     
+    /**
+     * Will be called after the given task was executed, with information
+     * about the timing of the task execution. This is the method that 
+     * is called by an {@link ObservableExecutorService}. The default 
+     * implementation calls {@link #afterExecute(Runnable, Throwable)}. 
+     * Implementors may override this method in order to receive the
+     * timing information.
+     * 
+     * @param r The task
+     * @param t A throwable that may have been caused
+     * @param queueWaitNanos The time, in nanoseconds, between the task 
+     * being scheduled and being started, or -1 if this is not known
+     * @param executionNanos The time, in nanoseconds, that the execution
+     * of the task took, or -1 if this is not known
+     */
+    default void afterExecute(Runnable r, Throwable t, 
+        long queueWaitNanos, long executionNanos)
+    {
+        afterExecute(r, t);
+    }
+    
     /**
      * Will be called after all tasks have been finished. That is,
      * when {@link #afterExecute(Runnable, Throwable)} was called
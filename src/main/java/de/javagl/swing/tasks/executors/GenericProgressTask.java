@@ -34,11 +34,13 @@ import de.javagl.swing.tasks.ProgressListener;
 /**
  * Implementation of a {@link ProgressTask} that also implements the
  * <code>Callable</code> interface, and delegates its work to another
- * <code>Callable</code>.
+ * <code>Callable</code>. It also implements the {@link PriorityTask}
+ * interface, with a priority that may be set with {@link #setPriority(int)}.
  *
  * @param <T> The return type
  */
-public final class GenericProgressTask<T> implements Callable<T>, ProgressTask
+public final class GenericProgressTask<T> 
+    implements Callable<T>, ProgressTask, PriorityTask
 {
     /**
      * The description of this task, to be shown in the UI
@@ -56,6 +58,11 @@ public final class GenericProgressTask<T> implements Callable<T>, ProgressTask
      */
     private Callable<T> callable;
     
+    /**
+     * The priority of this task
+     */
+    private volatile int priority;
+    
     /**
      * Creates a new task with the given description. The description should
      * be a short string that is suitable for using it as a label for this
@@ -97,6 +104,26 @@ public final class GenericProgressTask<T> implements Callable<T>, ProgressTask
         return dispatchingProgressListener;
     }
     
+    /**
+     * Set the priority of this task. This has to be called before the 
+     * task is submitted to an executor service. The priority of a task 
+     * that was already submitted may be changed with
+     * {@link ObservableExecutorService#reprioritize(Object, int)}.
+     * 
+     * @param priority The priority
+     * @see PriorityTask
+     */
+    public void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+    
+    @Override
+    public int getPriority()
+    {
+        return priority;
+    }
+    
     @Override
     public T call() throws Exception
     {
@@ -0,0 +1,284 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A compact, thread-safe histogram for non-negative durations, used
+ * by the {@link ExecutorMetrics}.<br>
+ * <br>
+ * The values are counted in buckets with a logarithmic layout: Each 
+ * power of two is divided into {@link #SUB_BUCKETS} linear sub-buckets, 
+ * so that the relative error of the reported percentiles is at most
+ * 1 / {@link #SUB_BUCKETS}, for values between 0 and 
+ * <code>Long.MAX_VALUE</code>, with a fixed number of buckets.<br>
+ * <br>
+ * The bucket counts are striped: Each thread records its values in 
+ * one of a few arrays of counts, selected based on the thread ID, so 
+ * that threads that record values at the same time usually do not 
+ * contend for the same counter. The price for this is that each 
+ * histogram requires {@link #STRIPES} times the memory of a single 
+ * array of counts, and that reading the histogram has to sum up all 
+ * stripes. The latter is done once for a {@link Snapshot}, which is 
+ * re-used for all values that are read within a short time.
+ */
+class LatencyHistogram
+{
+    /**
+     * The number of bits for the sub-buckets
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    
+    /**
+     * The number of sub-buckets for each power of two
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    /**
+     * The total number of buckets
+     */
+    private static final int NUM_BUCKETS = 
+        (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    /**
+     * The number of stripes of the bucket counts. This is the number of
+     * available processors, rounded up to a power of two, but at most 4, 
+     * to limit the memory that is required for the histograms of all 
+     * task descriptions. 
+     */
+    private static final int STRIPES = Math.min(4, Integer.highestOneBit(
+        Runtime.getRuntime().availableProcessors() * 2 - 1));
+    
+    /**
+     * The maximum age of a {@link Snapshot} that may be returned by
+     * {@link #getSnapshot()}, in nanoseconds
+     */
+    private static final long MAX_SNAPSHOT_AGE_NANOS = 
+        TimeUnit.MILLISECONDS.toNanos(100);
+    
+    /**
+     * A snapshot of the bucket counts of a {@link LatencyHistogram}
+     */
+    static final class Snapshot
+    {
+        /**
+         * The time stamp when this snapshot was created
+         */
+        private final long timeNanos;
+        
+        /**
+         * The counts for the buckets, summed over all stripes
+         */
+        private final long[] counts;
+        
+        /**
+         * The total number of values
+         */
+        private final long count;
+        
+        /**
+         * The maximum value
+         */
+        private final long max;
+        
+        /**
+         * Creates a new snapshot
+         * 
+         * @param timeNanos The time stamp
+         * @param counts The bucket counts
+         * @param count The total number of values
+         * @param max The maximum value
+         */
+        private Snapshot(long timeNanos, long[] counts, long count, long max)
+        {
+            this.timeNanos = timeNanos;
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+        
+        /**
+         * Returns the value at the given quantile, or 0 if no values 
+         * have been recorded. The result is the upper bound of the bucket 
+         * that contains the quantile, but at most the maximum recorded 
+         * value.
+         * 
+         * @param quantile The quantile, between 0.0 and 1.0
+         * @return The value
+         */
+        long getValueAtQuantile(double quantile)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            double clampedQuantile = Math.max(0.0, Math.min(1.0, quantile));
+            long target = 
+                Math.max(1, (long)Math.ceil(clampedQuantile * count));
+            long cumulative = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++)
+            {
+                cumulative += counts[i];
+                if (cumulative >= target)
+                {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+    
+    /**
+     * The counts for the buckets, for each stripe
+     */
+    private final AtomicLongArray[] stripes;
+    
+    /**
+     * The maximum recorded value
+     */
+    private final LongAccumulator max;
+    
+    /**
+     * The most recent {@link Snapshot}, or <code>null</code> if no 
+     * snapshot was created yet
+     */
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Creates a new, empty histogram
+     */
+    LatencyHistogram()
+    {
+        this.stripes = new AtomicLongArray[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+        {
+            this.stripes[i] = new AtomicLongArray(NUM_BUCKETS);
+        }
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+    
+    /**
+     * Record the given value. Negative values are ignored.
+     * 
+     * @param value The value
+     */
+    void record(long value)
+    {
+        if (value < 0)
+        {
+            return;
+        }
+        stripes[stripeIndex()].incrementAndGet(bucketIndex(value));
+        max.accumulate(value);
+    }
+    
+    /**
+     * Returns the index of the stripe for the calling thread
+     * 
+     * @return The stripe index
+     */
+    private static int stripeIndex()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int)(id ^ (id >>> 32));
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+    }
+    
+    /**
+     * Returns a {@link Snapshot} of this histogram, from which the values
+     * at different quantiles may be computed. If the most recent snapshot
+     * is less than 100 milliseconds old, then it is returned. Otherwise, 
+     * a new snapshot is created.
+     * 
+     * @return The {@link Snapshot}
+     */
+    Snapshot getSnapshot()
+    {
+        long nanos = System.nanoTime();
+        Snapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null && 
+            nanos - currentSnapshot.timeNanos < MAX_SNAPSHOT_AGE_NANOS)
+        {
+            return currentSnapshot;
+        }
+        long[] counts = new long[NUM_BUCKETS];
+        long count = 0;
+        for (AtomicLongArray stripe : stripes)
+        {
+            for (int i = 0; i < NUM_BUCKETS; i++)
+            {
+                long c = stripe.get(i);
+                counts[i] += c;
+                count += c;
+            }
+        }
+        Snapshot newSnapshot = new Snapshot(nanos, counts, count, max.get());
+        snapshot = newSnapshot;
+        return newSnapshot;
+    }
+    
+    /**
+     * Returns the index of the bucket for the given non-negative value
+     * 
+     * @param value The value
+     * @return The bucket index
+     */
+    private static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int)((value >>> shift) & (SUB_BUCKETS - 1));
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * Returns the largest value that falls into the bucket with the
+     * given index
+     * 
+     * @param index The bucket index
+     * @return The upper bound
+     */
+    private static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long lowerBound = (long)(SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + ((1L << shift) - 1);
+    }
+}
@@ -26,24 +26,28 @@
  */
 package de.javagl.swing.tasks.executors;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.GridLayout;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
-import javax.swing.DefaultListModel;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
-import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionListener;
 
 import de.javagl.swing.tasks.ProgressListener;
+import de.javagl.swing.tasks.UpdatePump;
 
 /**
  * A panel that displays a list of tasks that are currently executed in
@@ -77,21 +81,52 @@ public class ObservableExecutorPanel extends JPanel
     /**
      * The {@link ExecutorObserver} that will be attached to the 
      * {@link ObservableExecutorService}, and forward all status
-     * updates, on the Event Dispatch Thread, to the handling 
+     * updates, via the {@link #pendingEvents}, to the handling 
      * methods in this class.
      */
     private final ExecutorObserver executorObserver;
+    
+    /**
+     * The events that have been received from the 
+     * {@link ObservableExecutorService} or the {@link ProgressTask}s,
+     * and are waiting to be processed on the Event Dispatch Thread
+     */
+    private final Queue<Runnable> pendingEvents;
+    
+    /**
+     * The number of elements in the {@link #pendingEvents} queue
+     */
+    private final AtomicInteger pendingEventCount;
+    
+    /**
+     * Whether a pass for processing the {@link #pendingEvents} is 
+     * currently scheduled
+     */
+    private final AtomicBoolean eventProcessingScheduled;
+    
+    /**
+     * The pass that processes the {@link #pendingEvents}, which will 
+     * be scheduled via the {@link UpdatePump}
+     */
+    private final Runnable eventProcessing;
 
     /**
      * The list model that contains a {@link TaskView} for each task
      * that was submitted to the {@link ObservableExecutorService}
      */
-    private DefaultListModel<TaskView> listModel;
+    private final TaskViewListModel listModel;
     
     /**
      * The list that contains the list model
      */
-    private JList<TaskView> list;
+    private final JList<TaskView> list;
+    
+    /**
+     * The label that shows a summary of the finished tasks that have 
+     * been removed from the list because the maximum number of finished
+     * tasks was exceeded
+     */
+    private final JLabel historySummaryLabel;
     
     /**
      * A map from the tasks that have been submitted to the 
@@ -108,7 +143,7 @@ public class ObservableExecutorPanel extends JPanel
      * information and forward it to the {@link TaskViewHandler}
      * on the Event Dispatch Thread
      */
-    private final Map<ProgressTask, ProgressListener> progressListeners;
+    private final Map<ProgressTask, TaskProgressListener> progressListeners;
     
     /**
      * The {@link TaskViewHandler} that will update the {@link TaskView}
@@ -121,23 +156,46 @@ public class ObservableExecutorPanel extends JPanel
      */
     public ObservableExecutorPanel()
     {
-        super(new GridLayout(1,1));
+        super(new BorderLayout());
         
         taskViews = new IdentityHashMap<Object, TaskView>();
+        pendingEvents = new ConcurrentLinkedQueue<Runnable>();
+        pendingEventCount = new AtomicInteger();
+        eventProcessingScheduled = new AtomicBoolean();
+        eventProcessing = () -> processPendingEvents();
         progressListeners = 
-            new IdentityHashMap<ProgressTask, ProgressListener>();
+            new IdentityHashMap<ProgressTask, TaskProgressListener>();
         
         taskViewHandler = TaskViewHandlers.createDefault();
 
-        listModel = new DefaultListModel<TaskView>();
-        list = new JList<TaskView>(listModel);
+        list = new JList<TaskView>();
+        listModel = new TaskViewListModel(list);
+        list.setModel(listModel);
         list.setFont(new Font("Monospaced", Font.BOLD, 12));
         list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         list.setSelectionBackground(new Color(216,216,216));
         ListCellRenderer<Object> listCellRenderer = 
             TaskViewListCellRenderers.createWithProgressBar();
         list.setCellRenderer(listCellRenderer);
-        add(new JScrollPane(list));
+        
+        // Use a fixed cell size, so that the list does not have to 
+        // query the renderer for each cell when the model changes. 
+        // The size is recomputed when the cell renderer is changed.
+        // The list model increases the width for longer texts.
+        TaskView prototypeTaskView = new TaskView(null);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++)
+        {
+            sb.append("X");
+        }
+        prototypeTaskView.setText(sb.toString());
+        prototypeTaskView.setProgress(0.5);
+        list.setPrototypeCellValue(prototypeTaskView);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        
+        historySummaryLabel = new JLabel();
+        historySummaryLabel.setVisible(false);
+        add(historySummaryLabel, BorderLayout.NORTH);
 
         executorObserver = new ExecutorObserver()
         {
@@ -168,24 +226,21 @@ public class ObservableExecutorPanel extends JPanel
             public void scheduled(Runnable r)
             {
                 Object task = getTask(r);
-                SwingUtilities.invokeLater(
-                    () -> handleScheduled(task));
+                enqueue(() -> handleScheduled(task));
             }
 
             @Override
             public void beforeExecute(Thread t, Runnable r)
             {
                 Object task = getTask(r);
-                SwingUtilities.invokeLater(
-                    () -> handleBeforeExecute(task));
+                enqueue(() -> handleBeforeExecute(task));
             }
             
             @Override
             public void afterExecute(Runnable r, Throwable t)
             {
                 Object task = getTask(r);
-                SwingUtilities.invokeLater(
-                    () -> handleAfterExecute(task, t));
+                enqueue(() -> handleAfterExecute(task, t));
             }
             
             @Override
@@ -208,11 +263,18 @@ public class ObservableExecutorPanel extends JPanel
         ListCellRenderer<? super TaskView> cellRenderer)
     {
         list.setCellRenderer(cellRenderer);
+        listModel.updateCellWidths();
     }
     
     /**
      * Add the given listener to be informed about selections in the
-     * list that displays the {@link TaskView}s
+     * list that displays the {@link TaskView}s.<br>
+     * <br>
+     * If the {@link #setMaximumFinishedTaskCount(int) maximum number of 
+     * finished tasks} is limited, then the selected values of the list 
+     * for finished tasks are snapshots of their {@link TaskView}s, and a 
+     * new snapshot is created each time the value is obtained. They 
+     * can not be compared by identity.
      * 
      * @param listener The listener
      */
@@ -232,6 +294,35 @@ public class ObservableExecutorPanel extends JPanel
         list.removeListSelectionListener(listener);
     }
     
+    /**
+     * Returns the task whose {@link TaskView} is currently selected in 
+     * the list, or <code>null</code> if no task is selected. This is the 
+     * task that was submitted to the {@link ObservableExecutorService}, 
+     * and may, for example, be passed to 
+     * {@link ObservableExecutorService#reprioritize(Object, int)}, so that 
+     * the task that the user selected is executed earlier. If the
+     * selected task already finished execution, then <code>null</code>
+     * is returned.
+     * 
+     * @return The selected task
+     */
+    public Object getSelectedTask()
+    {
+        TaskView selectedTaskView = list.getSelectedValue();
+        if (selectedTaskView == null)
+        {
+            return null;
+        }
+        for (Map.Entry<Object, TaskView> entry : taskViews.entrySet())
+        {
+            if (entry.getValue() == selectedTaskView)
+            {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+    
     /**
      * Set the {@link TaskViewHandler} that may be used to configure the
      * appearance of the {@link TaskView} instances that are displayed
@@ -248,6 +339,55 @@ public class ObservableExecutorPanel extends JPanel
         this.taskViewHandler = taskViewHandler;
     }
     
+    /**
+     * Set the maximum number of tasks that have finished execution which 
+     * should be displayed in the list. When this number is exceeded, then
+     * the oldest finished tasks will be removed from the list, and only
+     * the number of removed tasks will be displayed. By default, the
+     * number of finished tasks is not limited.<br>
+     * <br>
+     * When the number is limited, then the state of the {@link TaskView}
+     * of each finished task is stored in a compact form, after the 
+     * {@link TaskViewHandler} has been notified that the task was 
+     * executed. Later modifications of such a {@link TaskView}, including
+     * calls to {@link TaskView#remove()}, no longer affect the list. 
+     * Passing <code>Integer.MAX_VALUE</code> removes the limit for tasks
+     * that finish afterwards.
+     * 
+     * @param maximumFinishedTaskCount The maximum number of finished tasks
+     * @throws IllegalArgumentException If the given number is negative
+     */
+    public final void setMaximumFinishedTaskCount(int maximumFinishedTaskCount)
+    {
+        if (maximumFinishedTaskCount < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximumFinishedTaskCount may not be negative, but is " 
+                + maximumFinishedTaskCount);
+        }
+        listModel.setMaximumFinishedCount(maximumFinishedTaskCount);
+        updateHistorySummary();
+    }
+    
+    /**
+     * Update the {@link #historySummaryLabel} based on the number of 
+     * finished tasks that have been removed from the list
+     */
+    private void updateHistorySummary()
+    {
+        long finished = listModel.getEvictedFinishedCount();
+        long failed = listModel.getEvictedFailedCount();
+        long total = finished + failed;
+        if (total == 0)
+        {
+            historySummaryLabel.setVisible(false);
+            return;
+        }
+        historySummaryLabel.setText(total + " older tasks not shown (" + 
+            finished + " finished, " + failed + " failed)");
+        historySummaryLabel.setVisible(true);
+    }
+    
     /**
      * Set the {@link ObservableExecutorService} that should be displayed
      * in this panel
@@ -261,7 +401,8 @@ public class ObservableExecutorPanel extends JPanel
             observableExecutorService != newObservableExecutorService)
         {
             observableExecutorService.removeExecutorObserver(executorObserver);
-            listModel.removeAllElements();
+            listModel.clear();
+            updateHistorySummary();
             taskViews.clear();
             progressListeners.entrySet().stream().forEach(e -> 
             {
@@ -277,6 +418,64 @@ public class ObservableExecutorPanel extends JPanel
     }
     
     
+    /**
+     * Add the given event to the queue of pending events, and make sure 
+     * that a pass for processing the pending events is scheduled. The 
+     * pass is scheduled via the {@link UpdatePump}, so that all events 
+     * that arrive during one frame are processed together.
+     * 
+     * @param event The event
+     */
+    private void enqueue(Runnable event)
+    {
+        pendingEvents.add(event);
+        pendingEventCount.incrementAndGet();
+        if (eventProcessingScheduled.compareAndSet(false, true))
+        {
+            UpdatePump.schedule(eventProcessing);
+        }
+    }
+    
+    /**
+     * Process the events that are currently pending, as one batch update
+     * of the list model. Events that arrive while this method is running
+     * will be processed in the next pass. Only to be called on the Event 
+     * Dispatch Thread.
+     */
+    private void processPendingEvents()
+    {
+        eventProcessingScheduled.set(false);
+        int n = pendingEventCount.get();
+        listModel.beginBatch();
+        try
+        {
+            for (int i = 0; i < n; i++)
+            {
+                Runnable event = pendingEvents.poll();
+                if (event == null)
+                {
+                    break;
+                }
+                pendingEventCount.decrementAndGet();
+                try
+                {
+                    event.run();
+                }
+                catch (RuntimeException e)
+                {
+                    logger.severe(
+                        "Error when processing event: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+        finally
+        {
+            listModel.endBatch();
+        }
+        updateHistorySummary();
+    }
+    
     /**
      * Will be called on the Event Dispatch Thread when the given task was
      * scheduled for execution in the {@link ObservableExecutorService}
@@ -285,37 +484,17 @@ public class ObservableExecutorPanel extends JPanel
      */
     private void handleScheduled(Object task)
     {
-        TaskView taskView = new TaskView(listModel, list);
+        TaskView taskView = new TaskView(listModel);
         taskViews.put(task, taskView);
-        listModel.addElement(taskView);
+        listModel.add(taskView);
         
         taskViewHandler.scheduled(task, taskView);
         
         if (task instanceof ProgressTask)
         {
             ProgressTask progressTask = (ProgressTask)task;
-            ProgressListener progressListener = new ProgressListener()
-            {
-                @Override
-                public void progressChanged(double progress)
-                {
-                    SwingUtilities.invokeLater(() ->
-                    {
-                        taskViewHandler.progressChanged(
-                            progressTask, taskView, progress);
-                    });
-                }
-                
-                @Override
-                public void messageChanged(String message)
-                {
-                    SwingUtilities.invokeLater(() ->
-                    {
-                        taskViewHandler.messageChanged(
-                            progressTask, taskView, message);
-                    });
-                }
-            };
+            TaskProgressListener progressListener = 
+                new TaskProgressListener(progressTask, taskView);
             progressTask.addProgressListener(progressListener);
             progressListeners.put(progressTask, progressListener);
         }
@@ -354,14 +533,153 @@ public class ObservableExecutorPanel extends JPanel
             logger.warning("No taskView found for task " + task);
             return;
         }
-        taskViewHandler.afterExecute(task, t, taskView);
+        TaskProgressListener progressListener = null;
         if (task instanceof ProgressTask)
         {
             ProgressTask progressTask = (ProgressTask)task;
-            ProgressListener progressListener = 
-                progressListeners.remove(progressTask);
+            progressListener = progressListeners.remove(progressTask);
             progressTask.removeProgressListener(progressListener);
         }
+        if (progressListener != null)
+        {
+            progressListener.finish();
+        }
+        taskViewHandler.afterExecute(task, t, taskView);
+        taskViews.remove(task);
+        listModel.finish(taskView, t != null);
+    }
+    
+    /**
+     * A {@link ProgressListener} that is attached to a {@link ProgressTask},
+     * and forwards the latest progress information to the 
+     * {@link TaskViewHandler}. The updates are coalesced, meaning that 
+     * there is at most one pending update on the Event Dispatch Thread
+     * for each task, and that this update is delivered together with
+     * the other pending events of the {@link ObservableExecutorPanel}.
+     */
+    private final class TaskProgressListener implements ProgressListener
+    {
+        /**
+         * The {@link ProgressTask}
+         */
+        private final ProgressTask progressTask;
+        
+        /**
+         * The {@link TaskView} for the task
+         */
+        private final TaskView taskView;
+        
+        /**
+         * The latest progress
+         */
+        private volatile double progress;
+        
+        /**
+         * Whether the progress changed since the last update
+         */
+        private volatile boolean progressChanged;
+        
+        /**
+         * The latest message
+         */
+        private volatile String message;
+        
+        /**
+         * Whether the message changed since the last update
+         */
+        private volatile boolean messageChanged;
+        
+        /**
+         * Whether the task was finished. Only accessed on the Event 
+         * Dispatch Thread.
+         */
+        private boolean finished;
+        
+        /**
+         * Whether an update is currently pending
+         */
+        private final AtomicBoolean updatePending = new AtomicBoolean();
+        
+        /**
+         * The update that will be added to the pending events
+         */
+        private final Runnable update = () -> applyUpdate();
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param progressTask The {@link ProgressTask}
+         * @param taskView The {@link TaskView}
+         */
+        TaskProgressListener(ProgressTask progressTask, TaskView taskView)
+        {
+            this.progressTask = progressTask;
+            this.taskView = taskView;
+        }
+        
+        @Override
+        public void progressChanged(double progress)
+        {
+            this.progress = progress;
+            this.progressChanged = true;
+            requestUpdate();
+        }
+        
+        @Override
+        public void messageChanged(String message)
+        {
+            this.message = message;
+            this.messageChanged = true;
+            requestUpdate();
+        }
+        
+        /**
+         * Make sure that an update is scheduled, unless one is 
+         * already pending
+         */
+        private void requestUpdate()
+        {
+            if (updatePending.compareAndSet(false, true))
+            {
+                enqueue(update);
+            }
+        }
+        
+        /**
+         * Pass the latest progress information to the {@link TaskViewHandler}.
+         * Only to be called on the Event Dispatch Thread.
+         */
+        private void applyUpdate()
+        {
+            updatePending.set(false);
+            if (finished)
+            {
+                return;
+            }
+            if (messageChanged)
+            {
+                messageChanged = false;
+                taskViewHandler.messageChanged(
+                    progressTask, taskView, message);
+            }
+            if (progressChanged)
+            {
+                progressChanged = false;
+                taskViewHandler.progressChanged(
+                    progressTask, taskView, progress);
+            }
+        }
+        
+        /**
+         * Apply any pending update, and make sure that no further updates
+         * are passed to the {@link TaskViewHandler}. Only to be called on 
+         * the Event Dispatch Thread.
+         */
+        void finish()
+        {
+            applyUpdate();
+            finished = true;
+        }
     }
     
 }
\ No newline at end of file
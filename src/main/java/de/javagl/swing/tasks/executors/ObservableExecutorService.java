@@ -26,6 +26,7 @@
  */
 package de.javagl.swing.tasks.executors;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
@@ -34,6 +35,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
@@ -52,6 +54,10 @@ import java.util.logging.Logger;
  * will <b>not</b> be possible for tasks that are submitted with 
  * {@link #execute(Runnable)}.<br>
  * <br>
+ * The observers are only notified about tasks that have been accepted 
+ * for execution. Tasks that are rejected (for example, because this 
+ * executor service was shut down) are not reported to the observers.<br>
+ * <br>
  * Instances of this class may be passed to an {@link ObservableExecutorPanel},
  * which will track the task execution and display information about the
  * active tasks and in the UI. If the tasks that are submitted to this 
@@ -78,6 +84,13 @@ public class ObservableExecutorService extends ThreadPoolExecutor
      * progress of the task execution
      */
     private final List<ExecutorObserver> executorObservers;
+    
+    /**
+     * The {@link ExecutorEventRing} through which the events are delivered
+     * to the observers, or <code>null</code> if they are delivered 
+     * synchronously
+     */
+    private volatile ExecutorEventRing executorEventRing;
 
     /**
      * Default constructor. See <code>ThreadPoolExecutor</code> for details.
@@ -130,6 +143,113 @@ public class ObservableExecutorService extends ThreadPoolExecutor
         executorObservers.remove(executorObserver);
     }
     
+    /**
+     * Enable the asynchronous delivery of events to the 
+     * {@link ExecutorObserver}s.<br>
+     * <br>
+     * By default, the observers are notified synchronously, on the 
+     * thread that submits a task or on the worker thread that executes
+     * it, so that a slow observer delays the execution of the tasks.
+     * After this method has been called, the events will be written into 
+     * a preallocated ring buffer with the given capacity, and dispatched
+     * to the observers by a single background thread. The observers will
+     * then receive the events in the order in which they have been 
+     * published, but on a different thread, and possibly with a delay. 
+     * When the ring buffer is full, then the publishing threads will 
+     * wait until the observers have caught up. If the ring buffer stays 
+     * full for more than 100 milliseconds, or an observer submits a task
+     * while the ring buffer is full, then the event is delivered 
+     * synchronously on the publishing thread, possibly before earlier 
+     * events. After the background thread terminated, all events are 
+     * delivered synchronously.<br>
+     * <br>
+     * The background thread will terminate after this executor service
+     * has been terminated and all events have been dispatched.
+     * 
+     * @param capacity The capacity of the ring buffer. This will be 
+     * rounded up to the next power of two.
+     * @throws IllegalArgumentException If the capacity is not positive
+     * @throws IllegalStateException If the asynchronous delivery was 
+     * already enabled, or this executor service was shut down
+     */
+    public final synchronized void enableAsynchronousObserverDelivery(
+        int capacity)
+    {
+        if (executorEventRing != null)
+        {
+            throw new IllegalStateException(
+                "Asynchronous observer delivery was already enabled");
+        }
+        if (isShutdown())
+        {
+            throw new IllegalStateException(
+                "The executor service was already shut down");
+        }
+        executorEventRing = new ExecutorEventRing(this, capacity);
+    }
+    
+    /**
+     * Change the priority of the given task, if it is still pending.<br>
+     * <br>
+     * The given task may either be a task that was submitted to this
+     * executor service, or the future that was returned when it was
+     * submitted. If the task is contained in the queue of pending 
+     * tasks, then it will be assigned the given priority, and re-inserted 
+     * into the queue accordingly. If the task is not pending any more, 
+     * then this method has no effect. After this executor service has 
+     * been shut down, this method has no effect and returns 
+     * <code>false</code>.<br>
+     * <br>
+     * This only affects the order of execution for executor services 
+     * that have been created with 
+     * {@link ObservableExecutors#newPriorityThreadPool(int)}.
+     * 
+     * @param task The task
+     * @param priority The new priority
+     * @return Whether the priority of the task was changed
+     */
+    public final boolean reprioritize(Object task, int priority)
+    {
+        if (isShutdown())
+        {
+            return false;
+        }
+        BlockingQueue<Runnable> queue = getQueue();
+        for (Runnable runnable : queue)
+        {
+            if (!(runnable instanceof ObservableTask<?>))
+            {
+                continue;
+            }
+            Object innerTask = 
+                ObservableExecutors.getInnerTask(runnable, Object.class);
+            if (runnable != task && innerTask != task)
+            {
+                continue;
+            }
+            ObservableTask<?> observableTask = (ObservableTask<?>)runnable;
+            if (!queue.remove(observableTask))
+            {
+                return false;
+            }
+            observableTask.setPriority(priority);
+            queue.add(observableTask);
+            
+            // The executor may have been shut down while the task was not
+            // contained in the queue, and the last worker may have exited.
+            // Make sure that there is a worker that executes the task, and 
+            // cancel the task if the executor already terminated
+            prestartCoreThread();
+            if (isTerminated() && queue.remove(observableTask))
+            {
+                observableTask.cancel(false);
+                return false;
+            }
+            return true;
+        }
+        return false;
+    }
+    
     @Override
     protected final <V> RunnableFuture<V> newTaskFor(Callable<V> c)
     {
@@ -145,39 +265,126 @@ public class ObservableExecutorService extends ThreadPoolExecutor
     @Override
     public void execute(Runnable command)
     {
+        if (command instanceof ObservableTask<?>)
+        {
+            ((ObservableTask<?>)command).markScheduled();
+        }
+        Runnable queuedCommand = command;
+        if (!(command instanceof ObservableTask<?>) &&
+            getQueue() instanceof PriorityBlockingQueue<?>)
+        {
+            // Assign a sequence number to the command, so that it is 
+            // executed in submission order among equal priorities
+            queuedCommand = new SequencedRunnable(command);
+        }
         activeTaskCounter.incrementAndGet();
-        for (ExecutorObserver executorObserver : executorObservers)
+        try
+        {
+            super.execute(queuedCommand);
+        }
+        catch (RuntimeException e)
+        {
+            // Rejected tasks are not reported to the observers
+            if (activeTaskCounter.decrementAndGet() == 0)
+            {
+                publishTasksFinished();
+            }
+            throw e;
+        }
+        
+        // The notification is only sent after the task was accepted. 
+        // If a worker thread already started the task, then it sends 
+        // the notification before reporting the start
+        if (!(command instanceof ObservableTask<?>))
+        {
+            publishScheduled(command);
+            return;
+        }
+        ObservableTask<?> observableTask = (ObservableTask<?>)command;
+        if (observableTask.claimScheduledNotification())
         {
             try
             {
-                executorObserver.scheduled(command);
+                publishScheduled(command);
             }
-            catch (Exception e)
+            finally
             {
-                logger.severe(
-                    "Error when notifying observer: " + e.getMessage());
-                e.printStackTrace();
+                observableTask.scheduledNotificationDone();
             }
         }
-        super.execute(command);       
+    }
+    
+    /**
+     * Notify the observers that the given task was scheduled, either 
+     * directly or via the {@link ExecutorEventRing}
+     * 
+     * @param r The task
+     */
+    private void publishScheduled(Runnable r)
+    {
+        ExecutorEventRing ring = executorEventRing;
+        if (ring != null)
+        {
+            ring.publish(ExecutorEventRing.SCHEDULED, r, null, null, -1, -1);
+        }
+        else
+        {
+            notifyScheduled(r);
+        }
+    }
+    
+    /**
+     * Notify the observers that all tasks have been finished, either 
+     * directly or via the {@link ExecutorEventRing}
+     */
+    private void publishTasksFinished()
+    {
+        ExecutorEventRing ring = executorEventRing;
+        if (ring != null)
+        {
+            ring.publish(ExecutorEventRing.TASKS_FINISHED, 
+                null, null, null, -1, -1);
+        }
+        else
+        {
+            notifyTasksFinished();
+        }
     }
     
     @Override
     protected void beforeExecute(Thread t, Runnable r)
     {
-        for (ExecutorObserver executorObserver : executorObservers)
+        Runnable task = SequencedRunnable.unwrap(r);
+        if (r instanceof ObservableTask<?>)
         {
-            try
+            ObservableTask<?> observableTask = (ObservableTask<?>)r;
+            observableTask.markStarted();
+            if (observableTask.claimScheduledNotification())
             {
-                executorObserver.beforeExecute(t, r);
+                try
+                {
+                    publishScheduled(r);
+                }
+                finally
+                {
+                    observableTask.scheduledNotificationDone();
+                }
             }
-            catch (Exception e)
+            else
             {
-                logger.severe(
-                    "Error when notifying observer: " + e.getMessage());
-                e.printStackTrace();
+                observableTask.awaitScheduledNotification();
             }
         }
+        ExecutorEventRing ring = executorEventRing;
+        if (ring != null)
+        {
+            ring.publish(ExecutorEventRing.BEFORE_EXECUTE, 
+                task, t, null, -1, -1);
+        }
+        else
+        {
+            notifyBeforeExecute(t, task);
+        }
         super.beforeExecute(t, r);
     }
     
@@ -185,14 +392,29 @@ public class ObservableExecutorService extends ThreadPoolExecutor
     protected void afterExecute(Runnable r, Throwable t)
     {
         super.afterExecute(r, t);
+        Runnable task = SequencedRunnable.unwrap(r);
         Throwable throwable = t;
+        long queueWaitNanos = -1;
+        long executionNanos = -1;
         
-        // Unwrap possible exceptions if the runnable is actually a Future
-        if (t == null && r instanceof Future<?>)
+        if (r instanceof ObservableTask<?>)
         {
+            // The ObservableTask records its timing and outcome
+            ObservableTask<?> observableTask = (ObservableTask<?>)r;
+            observableTask.markFinished();
+            queueWaitNanos = observableTask.getQueueWaitNanos();
+            executionNanos = observableTask.getExecutionNanos();
+            if (throwable == null)
+            {
+                throwable = observableTask.getThrowable();
+            }
+        }
+        else if (t == null && task instanceof Future<?>)
+        {
+            // Unwrap possible exceptions if the runnable is another Future
             try
             {
-                Future<?> future = (Future<?>)r;
+                Future<?> future = (Future<?>)task;
                 future.get();
             } 
             catch (CancellationException e)
@@ -210,11 +432,79 @@ public class ObservableExecutorService extends ThreadPoolExecutor
             }
         }
         
+        ExecutorEventRing ring = executorEventRing;
+        if (ring != null)
+        {
+            ring.publish(ExecutorEventRing.AFTER_EXECUTE, 
+                task, null, throwable, queueWaitNanos, executionNanos);
+        }
+        else
+        {
+            notifyAfterExecute(
+                task, throwable, queueWaitNanos, executionNanos);
+        }
+        
+        if (activeTaskCounter.decrementAndGet() == 0)
+        {
+            publishTasksFinished();
+        }
+        
+    }
+    
+    @Override
+    public boolean remove(Runnable task)
+    {
+        if (super.remove(task))
+        {
+            return true;
+        }
+        for (Runnable runnable : getQueue())
+        {
+            if (runnable instanceof SequencedRunnable && 
+                SequencedRunnable.unwrap(runnable) == task)
+            {
+                return super.remove(runnable);
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> runnables = super.shutdownNow();
+        List<Runnable> result = new ArrayList<Runnable>(runnables.size());
+        for (Runnable runnable : runnables)
+        {
+            result.add(SequencedRunnable.unwrap(runnable));
+        }
+        return result;
+    }
+    
+    @Override
+    protected void terminated()
+    {
+        super.terminated();
+        ExecutorEventRing ring = executorEventRing;
+        if (ring != null)
+        {
+            ring.shutdown();
+        }
+    }
+    
+    /**
+     * Notify all {@link ExecutorObserver}s that the given task was 
+     * scheduled
+     * 
+     * @param r The task
+     */
+    void notifyScheduled(Runnable r)
+    {
         for (ExecutorObserver executorObserver : executorObservers)
         {
             try
             {
-                executorObserver.afterExecute(r, throwable);
+                executorObserver.scheduled(r);
             }
             catch (Exception e)
             {
@@ -223,23 +513,79 @@ public class ObservableExecutorService extends ThreadPoolExecutor
                 e.printStackTrace();
             }
         }
-        
-        if (activeTaskCounter.decrementAndGet() == 0)
+    }
+    
+    /**
+     * Notify all {@link ExecutorObserver}s that the given task is about
+     * to be executed by the given thread
+     * 
+     * @param t The thread
+     * @param r The task
+     */
+    void notifyBeforeExecute(Thread t, Runnable r)
+    {
+        for (ExecutorObserver executorObserver : executorObservers)
         {
-            for (ExecutorObserver executorObserver : executorObservers)
+            try
             {
-                try
-                {
-                    executorObserver.tasksFinished();
-                }
-                catch (Exception e)
-                {
-                    logger.severe(
-                        "Error when notifying observer: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                executorObserver.beforeExecute(t, r);
+            }
+            catch (Exception e)
+            {
+                logger.severe(
+                    "Error when notifying observer: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Notify all {@link ExecutorObserver}s that the given task was 
+     * executed
+     * 
+     * @param r The task
+     * @param t The throwable that was caused by the task, or 
+     * <code>null</code> if it completed normally
+     * @param queueWaitNanos The queue wait time, or -1 if it is unknown
+     * @param executionNanos The execution time, or -1 if it is unknown
+     */
+    void notifyAfterExecute(Runnable r, Throwable t, 
+        long queueWaitNanos, long executionNanos)
+    {
+        for (ExecutorObserver executorObserver : executorObservers)
+        {
+            try
+            {
+                executorObserver.afterExecute(
+                    r, t, queueWaitNanos, executionNanos);
+            }
+            catch (Exception e)
+            {
+                logger.severe(
+                    "Error when notifying observer: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Notify all {@link ExecutorObserver}s that all tasks have been 
+     * finished
+     */
+    void notifyTasksFinished()
+    {
+        for (ExecutorObserver executorObserver : executorObservers)
+        {
+            try
+            {
+                executorObserver.tasksFinished();
+            }
+            catch (Exception e)
+            {
+                logger.severe(
+                    "Error when notifying observer: " + e.getMessage());
+                e.printStackTrace();
             }
         }
-        
     }
 }
\ No newline at end of file
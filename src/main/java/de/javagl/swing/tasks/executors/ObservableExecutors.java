@@ -26,10 +26,13 @@
  */
 package de.javagl.swing.tasks.executors;
 
+import java.util.Comparator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.TimeUnit;
 
@@ -38,6 +41,47 @@ import java.util.concurrent.TimeUnit;
  */
 public class ObservableExecutors
 {
+    /**
+     * The comparator for the tasks in the queue of a priority thread 
+     * pool. Tasks with a higher {@link PriorityTask#getPriority() priority}
+     * come first. Tasks with the same priority are ordered by their 
+     * sequence number, if they are {@link ObservableTask}s or 
+     * {@link SequencedRunnable}s.
+     */
+    private static final Comparator<Runnable> PRIORITY_COMPARATOR = 
+        (r0, r1) -> 
+    {
+        int p0 = (r0 instanceof PriorityTask) ? 
+            ((PriorityTask)r0).getPriority() : 0;
+        int p1 = (r1 instanceof PriorityTask) ? 
+            ((PriorityTask)r1).getPriority() : 0;
+        if (p0 != p1)
+        {
+            return Integer.compare(p1, p0);
+        }
+        return Long.compare(sequenceNumberOf(r0), sequenceNumberOf(r1));
+    };
+    
+    /**
+     * Returns the sequence number of the given task, or 
+     * <code>Long.MAX_VALUE</code> if the task has no sequence number
+     * 
+     * @param r The task
+     * @return The sequence number
+     */
+    private static long sequenceNumberOf(Runnable r)
+    {
+        if (r instanceof ObservableTask<?>)
+        {
+            return ((ObservableTask<?>)r).getSequenceNumber();
+        }
+        if (r instanceof SequencedRunnable)
+        {
+            return ((SequencedRunnable)r).getSequenceNumber();
+        }
+        return Long.MAX_VALUE;
+    }
+    
     /**
      * Create a new {@link ObservableExecutorService} with the given 
      * fixed pool size. See {@link Executors#newFixedThreadPool(int)}
@@ -55,6 +99,35 @@ public class ObservableExecutors
             Executors.defaultThreadFactory(), new AbortPolicy());
     }
     
+    /**
+     * Create a new {@link ObservableExecutorService} with the given 
+     * fixed pool size, which executes pending tasks in the order of
+     * their priority.<br>
+     * <br>
+     * If the submitted tasks implement the {@link PriorityTask} interface
+     * (for example, instances of the {@link GenericProgressTask} class), 
+     * then pending tasks with a higher priority will be executed before 
+     * tasks with a lower priority. Tasks with the same priority are 
+     * executed in the order in which they have been submitted, also 
+     * when they are passed directly to 
+     * {@link ObservableExecutorService#execute(Runnable)}. Other 
+     * tasks have a priority of 0.<br>
+     * <br>
+     * The priority of a task that is still pending may be changed with
+     * {@link ObservableExecutorService#reprioritize(Object, int)}.
+     *  
+     * @param poolSize The pool size
+     * @return The {@link ObservableExecutorService}
+     */
+    public static ObservableExecutorService newPriorityThreadPool(int poolSize)
+    {
+        return new ObservableExecutorService(
+            poolSize, poolSize, 
+            0L, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<Runnable>(11, PRIORITY_COMPARATOR),
+            Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+    
     /**
      * Create a new {@link ObservableExecutorService} with a cached thread
      * pool. See {@link Executors#newCachedThreadPool()}.
@@ -70,6 +143,48 @@ public class ObservableExecutors
             Executors.defaultThreadFactory(), new AbortPolicy());
     }
     
+    /**
+     * Create a new {@link ObservableExecutorService} that executes each 
+     * task in a new virtual thread. This is similar to 
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code>, and 
+     * intended for tasks that spend most of their time waiting for 
+     * blocking operations, like I/O.<br>
+     * <br>
+     * The returned executor service will notify its {@link ExecutorObserver}s
+     * just like the other executor services, and may be displayed in an
+     * {@link ObservableExecutorPanel}.<br>
+     * <br>
+     * Virtual threads are only available on Java 21 and later. On earlier
+     * Java versions, this method will throw an exception. Whether virtual
+     * threads are available can be checked with 
+     * {@link #isVirtualThreadPerTaskExecutorAvailable()}.
+     * 
+     * @return The {@link ObservableExecutorService}
+     * @throws UnsupportedOperationException If virtual threads are not
+     * available
+     */
+    public static ObservableExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        ThreadFactory threadFactory = VirtualThreads.createThreadFactory();
+        return new ObservableExecutorService(
+            0, Integer.MAX_VALUE,
+            0L, TimeUnit.MILLISECONDS, 
+            new SynchronousQueue<Runnable>(),
+            threadFactory, new AbortPolicy());
+    }
+    
+    /**
+     * Returns whether the {@link #newVirtualThreadPerTaskExecutor()} 
+     * method is supported, meaning that the current Java version 
+     * supports virtual threads
+     * 
+     * @return Whether virtual threads are available
+     */
+    public static boolean isVirtualThreadPerTaskExecutorAvailable()
+    {
+        return VirtualThreads.isAvailable();
+    }
+    
     /**
      * Utility method to obtain the task that may be wrapped in the 
      * given task. If the given task is an {@link ObservableTask},
@@ -92,19 +207,16 @@ public class ObservableExecutors
     public static <T> T getInnerTask(Runnable task, Class<T> type)
     {
         Runnable currentTask = task;
-        while (true)
+        while (currentTask instanceof ObservableTask<?>)
         {
-            if (currentTask instanceof ObservableTask<?>)
+            ObservableTask<?> currentObservableTask = 
+                (ObservableTask<?>) currentTask;
+            Runnable nextTask = currentObservableTask.getRunnable();
+            if (!(nextTask instanceof ObservableTask<?>))
             {
-                ObservableTask<?> currentObservableTask = 
-                    (ObservableTask<?>) currentTask;
-                Runnable nextTask = currentObservableTask.getRunnable();
-                if (!(nextTask instanceof ObservableTask<?>))
-                {
-                    break;
-                }
-                currentTask = nextTask;
+                break;
             }
+            currentTask = nextTask;
         }
         if (currentTask instanceof ObservableTask<?>)
         {
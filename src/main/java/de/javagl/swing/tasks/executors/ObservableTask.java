@@ -27,17 +27,54 @@
 package de.javagl.swing.tasks.executors;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of a future task that is used in an 
  * {@link ObservableExecutorService} to keep track of the runnable or
- * callable that it was created from.
+ * callable that it was created from.<br>
+ * <br>
+ * If the runnable or callable is a {@link PriorityTask}, then this task
+ * will initially have the same priority. Tasks with the same priority 
+ * are ordered by their sequence number, which reflects the order in 
+ * which they have been created.<br>
+ * <br>
+ * The {@link ObservableExecutorService} records the time stamps (as 
+ * returned by <code>System.nanoTime()</code>) when the task is scheduled, 
+ * started and finished. The task also records the exception that was
+ * caused by the computation, so that it may be obtained without calling
+ * <code>get()</code>.
  *
  * @param <V> The return type of this future
  */
-class ObservableTask<V> extends FutureTask<V>
+class ObservableTask<V> extends FutureTask<V> implements PriorityTask
 {
+    /**
+     * The counter for the {@link #sequenceNumber}
+     */
+    private static final AtomicLong sequenceCounter = new AtomicLong();
+    
+    /**
+     * The state of the scheduled notification when the observers have 
+     * not been notified yet
+     */
+    private static final int NOTIFICATION_PENDING = 0;
+    
+    /**
+     * The state of the scheduled notification while the observers are 
+     * being notified
+     */
+    private static final int NOTIFICATION_IN_PROGRESS = 1;
+    
+    /**
+     * The state of the scheduled notification after the observers have 
+     * been notified
+     */
+    private static final int NOTIFICATION_DONE = 2;
+    
     /**
      * The optional callable that may have been given in the constructor
      */
@@ -48,6 +85,54 @@ class ObservableTask<V> extends FutureTask<V>
      */
     private final Runnable runnable;
     
+    /**
+     * The sequence number of this task
+     */
+    private final long sequenceNumber;
+    
+    /**
+     * The priority of this task
+     */
+    private volatile int priority;
+    
+    /**
+     * The time stamp when this task was scheduled
+     */
+    private volatile long scheduledNanos;
+    
+    /**
+     * The time stamp when this task was started
+     */
+    private volatile long startedNanos;
+    
+    /**
+     * The time stamp when this task was finished
+     */
+    private volatile long finishedNanos;
+    
+    /**
+     * Whether this task was scheduled
+     */
+    private volatile boolean scheduled;
+    
+    /**
+     * Whether this task was started
+     */
+    private volatile boolean started;
+    
+    /**
+     * The state of the notification of the observers that this task 
+     * was scheduled. This object is also used as the monitor for 
+     * waiting until the notification is done.
+     */
+    private final AtomicInteger scheduledNotification = 
+        new AtomicInteger(NOTIFICATION_PENDING);
+    
+    /**
+     * The exception that was caused by the computation
+     */
+    private volatile Throwable throwable;
+    
     /**
      * Creates a new observable task for the given callable
      * 
@@ -58,6 +143,8 @@ class ObservableTask<V> extends FutureTask<V>
         super(callable);
         this.callable = callable;
         this.runnable = null;
+        this.sequenceNumber = sequenceCounter.getAndIncrement();
+        this.priority = priorityOf(callable);
     }
     
     /**
@@ -71,6 +158,196 @@ class ObservableTask<V> extends FutureTask<V>
         super(runnable, result);
         this.runnable = runnable;
         this.callable = null;
+        this.sequenceNumber = sequenceCounter.getAndIncrement();
+        this.priority = priorityOf(runnable);
+    }
+    
+    /**
+     * Returns the next sequence number for a task
+     * 
+     * @return The sequence number
+     */
+    static long nextSequenceNumber()
+    {
+        return sequenceCounter.getAndIncrement();
+    }
+    
+    /**
+     * Returns the priority of the given object if it is a 
+     * {@link PriorityTask}, or 0 otherwise
+     * 
+     * @param object The object
+     * @return The priority
+     */
+    private static int priorityOf(Object object)
+    {
+        if (object instanceof PriorityTask)
+        {
+            return ((PriorityTask)object).getPriority();
+        }
+        return 0;
+    }
+    
+    @Override
+    public int getPriority()
+    {
+        return priority;
+    }
+    
+    /**
+     * Set the priority of this task. This may not be called while the 
+     * task is contained in a priority queue.
+     * 
+     * @param priority The priority
+     */
+    void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+    
+    /**
+     * Returns whether the caller is responsible for notifying the 
+     * observers that this task was scheduled. This returns 
+     * <code>true</code> only for the first call. The caller then has
+     * to call {@link #scheduledNotificationDone()} after the 
+     * notification.
+     * 
+     * @return Whether the observers have to be notified
+     */
+    boolean claimScheduledNotification()
+    {
+        return scheduledNotification.compareAndSet(
+            NOTIFICATION_PENDING, NOTIFICATION_IN_PROGRESS);
+    }
+    
+    /**
+     * To be called after the observers have been notified that this 
+     * task was scheduled
+     */
+    void scheduledNotificationDone()
+    {
+        synchronized (scheduledNotification)
+        {
+            scheduledNotification.set(NOTIFICATION_DONE);
+            scheduledNotification.notifyAll();
+        }
+    }
+    
+    /**
+     * Wait until the notification of the observers that this task was 
+     * scheduled, which was started by another thread, is done
+     */
+    void awaitScheduledNotification()
+    {
+        if (scheduledNotification.get() == NOTIFICATION_DONE)
+        {
+            return;
+        }
+        synchronized (scheduledNotification)
+        {
+            while (scheduledNotification.get() == NOTIFICATION_IN_PROGRESS)
+            {
+                try
+                {
+                    scheduledNotification.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record the time stamp when this task was scheduled
+     */
+    void markScheduled()
+    {
+        scheduledNanos = System.nanoTime();
+        scheduled = true;
+    }
+    
+    /**
+     * Record the time stamp when this task was started
+     */
+    void markStarted()
+    {
+        startedNanos = System.nanoTime();
+        started = true;
+    }
+    
+    /**
+     * Record the time stamp when this task was finished
+     */
+    void markFinished()
+    {
+        finishedNanos = System.nanoTime();
+    }
+    
+    /**
+     * Returns the time, in nanoseconds, that this task was waiting between
+     * being scheduled and being started, or -1 if this is not known
+     * 
+     * @return The queue wait time
+     */
+    long getQueueWaitNanos()
+    {
+        if (!scheduled || !started)
+        {
+            return -1;
+        }
+        return startedNanos - scheduledNanos;
+    }
+    
+    /**
+     * Returns the time, in nanoseconds, between the start and the end 
+     * of the execution of this task, or -1 if this is not known
+     * 
+     * @return The execution time
+     */
+    long getExecutionNanos()
+    {
+        if (!started)
+        {
+            return -1;
+        }
+        return finishedNanos - startedNanos;
+    }
+    
+    @Override
+    protected void setException(Throwable t)
+    {
+        this.throwable = t;
+        super.setException(t);
+    }
+    
+    /**
+     * Returns the throwable that was caused by the computation of this 
+     * task, a <code>CancellationException</code> if this task was 
+     * cancelled, or <code>null</code> if the task completed normally 
+     * or is not done yet
+     * 
+     * @return The throwable
+     */
+    Throwable getThrowable()
+    {
+        if (isCancelled())
+        {
+            return new CancellationException("Task was cancelled.");
+        }
+        return throwable;
+    }
+    
+    /**
+     * Returns the sequence number of this task
+     * 
+     * @return The sequence number
+     */
+    long getSequenceNumber()
+    {
+        return sequenceNumber;
     }
     
     /**
@@ -0,0 +1,108 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+/**
+ * A wrapper for a runnable that was passed directly to 
+ * {@link ObservableExecutorService#execute(Runnable)} of an executor 
+ * service with a priority queue. It assigns a sequence number to the 
+ * runnable, so that runnables with the same priority are executed in 
+ * the order in which they have been submitted. The 
+ * {@link ObservableExecutorService} unwraps the runnable before passing 
+ * it to the {@link ExecutorObserver}s.
+ */
+final class SequencedRunnable implements Runnable, PriorityTask
+{
+    /**
+     * The runnable
+     */
+    private final Runnable runnable;
+    
+    /**
+     * The sequence number of this runnable
+     */
+    private final long sequenceNumber;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param runnable The runnable
+     */
+    SequencedRunnable(Runnable runnable)
+    {
+        this.runnable = runnable;
+        this.sequenceNumber = ObservableTask.nextSequenceNumber();
+    }
+    
+    /**
+     * Returns the runnable that is wrapped by the given runnable, if it 
+     * is a {@link SequencedRunnable}, or the given runnable otherwise
+     * 
+     * @param r The runnable
+     * @return The unwrapped runnable
+     */
+    static Runnable unwrap(Runnable r)
+    {
+        if (r instanceof SequencedRunnable)
+        {
+            return ((SequencedRunnable)r).runnable;
+        }
+        return r;
+    }
+    
+    /**
+     * Returns the sequence number of this runnable
+     * 
+     * @return The sequence number
+     */
+    long getSequenceNumber()
+    {
+        return sequenceNumber;
+    }
+    
+    @Override
+    public int getPriority()
+    {
+        if (runnable instanceof PriorityTask)
+        {
+            return ((PriorityTask)runnable).getPriority();
+        }
+        return 0;
+    }
+    
+    @Override
+    public void run()
+    {
+        runnable.run();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return runnable.toString();
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.javagl.swing.tasks.ProgressListener;
+import de.javagl.swing.tasks.UpdatePump;
+
+/**
+ * A graph of tasks with dependencies, which are executed with an 
+ * {@link ObservableExecutorService}.<br>
+ * <br>
+ * Tasks are added to the graph with 
+ * {@link #addTask(GenericProgressTask, double, TaskGraphNode...)}, 
+ * which returns a {@link TaskGraphNode} that may be used as a dependency 
+ * of tasks that are added later. The task of a node may obtain the results
+ * of its dependencies with {@link TaskGraphNode#getResult()}. Since the 
+ * dependencies of a node must already be part of the graph when the node
+ * is added, the graph can not contain cycles.<br>
+ * <br>
+ * When the graph is {@link #execute() executed}, then each task is 
+ * submitted to the executor service as soon as all of its dependencies 
+ * have been completed. The tasks will therefore appear in an 
+ * {@link ObservableExecutorPanel} that shows the executor service. When
+ * a task fails or is cancelled, then all tasks that depend on it will
+ * be cancelled.<br>
+ * <br>
+ * The graph itself is a {@link ProgressTask}. Its progress is computed 
+ * from the <i>critical path</i> of the graph: It is the fraction of the
+ * longest path through the graph (based on the estimated costs of the
+ * tasks) that has already been completed, considering the progress 
+ * that is reported by the running tasks. The progress is recomputed at
+ * most once per batch of the {@link UpdatePump}, and the registered
+ * {@link ProgressListener}s are informed on the Event Dispatch Thread.
+ */
+public final class TaskGraph implements ProgressTask
+{
+    /**
+     * The description of this graph
+     */
+    private final String description;
+    
+    /**
+     * The executor service that executes the tasks
+     */
+    private final ObservableExecutorService executorService;
+    
+    /**
+     * The nodes of this graph, in the order in which they have been added,
+     * which is a topological order
+     */
+    private final List<TaskGraphNode<?>> nodes;
+    
+    /**
+     * The {@link DispatchingProgressListener} that will dispatch changes
+     * to the registered {@link ProgressListener}s
+     */
+    private final DispatchingProgressListener dispatchingProgressListener;
+    
+    /**
+     * Whether this graph was already executed
+     */
+    private final AtomicBoolean executed;
+    
+    /**
+     * The number of nodes that are not done yet
+     */
+    private final AtomicInteger remainingNodes;
+    
+    /**
+     * The first exception that was caused by a task
+     */
+    private final AtomicReference<Throwable> failure;
+    
+    /**
+     * The future that is completed when all tasks are done
+     */
+    private final CompletableFuture<Void> completion;
+    
+    /**
+     * Whether a computation of the progress is scheduled via the
+     * {@link UpdatePump} and not started yet
+     */
+    private final AtomicBoolean progressUpdatePending;
+    
+    /**
+     * The update that computes the progress on the Event Dispatch Thread
+     */
+    private final Runnable progressUpdate;
+    
+    /**
+     * The remaining costs of the longest paths starting at each node. 
+     * After the graph was executed, this is only accessed on the Event
+     * Dispatch Thread.
+     */
+    private double[] remainingCosts;
+    
+    /**
+     * The total cost of the critical path, computed when the graph
+     * is executed
+     */
+    private volatile double criticalPathCost;
+    
+    /**
+     * The current progress of this graph
+     */
+    private volatile double progress;
+    
+    /**
+     * Creates a new, empty task graph
+     * 
+     * @param description The description of the graph
+     * @param executorService The executor service that will execute
+     * the tasks
+     */
+    public TaskGraph(String description, 
+        ObservableExecutorService executorService)
+    {
+        this.description = description;
+        this.executorService = Objects.requireNonNull(executorService, 
+            "The executorService may not be null");
+        this.nodes = new ArrayList<TaskGraphNode<?>>();
+        this.dispatchingProgressListener = new DispatchingProgressListener();
+        this.executed = new AtomicBoolean();
+        this.remainingNodes = new AtomicInteger();
+        this.failure = new AtomicReference<Throwable>();
+        this.completion = new CompletableFuture<Void>();
+        this.progressUpdatePending = new AtomicBoolean();
+        this.progressUpdate = () -> computeProgress();
+    }
+    
+    /**
+     * Add the given task to this graph, with an estimated cost of 1.0.
+     * See {@link #addTask(GenericProgressTask, double, TaskGraphNode...)}.
+     * 
+     * @param <T> The result type of the task
+     * @param task The task
+     * @param dependencies The nodes that the task depends on
+     * @return The {@link TaskGraphNode} for the task
+     * @throws IllegalStateException If the graph was already executed
+     * @throws IllegalArgumentException If any dependency does not 
+     * belong to this graph
+     */
+    public <T> TaskGraphNode<T> addTask(GenericProgressTask<T> task,
+        TaskGraphNode<?> ... dependencies)
+    {
+        return addTask(task, 1.0, dependencies);
+    }
+    
+    /**
+     * Add the given task to this graph. The task will be executed when
+     * all the given dependencies have been completed successfully. 
+     * The given cost is an estimate of the duration of the task, 
+     * relative to the other tasks, and used for computing the progress 
+     * along the critical path.
+     * 
+     * @param <T> The result type of the task
+     * @param task The task
+     * @param cost The estimated cost of the task
+     * @param dependencies The nodes that the task depends on
+     * @return The {@link TaskGraphNode} for the task
+     * @throws IllegalStateException If the graph was already executed
+     * @throws IllegalArgumentException If the cost is negative, or any 
+     * dependency does not belong to this graph
+     */
+    public synchronized <T> TaskGraphNode<T> addTask(
+        GenericProgressTask<T> task, double cost, 
+        TaskGraphNode<?> ... dependencies)
+    {
+        Objects.requireNonNull(task, "The task may not be null");
+        if (executed.get())
+        {
+            throw new IllegalStateException(
+                "The graph was already executed");
+        }
+        if (!(cost >= 0))
+        {
+            throw new IllegalArgumentException(
+                "The cost may not be negative, but is " + cost);
+        }
+        for (TaskGraphNode<?> dependency : dependencies)
+        {
+            if (dependency.getTaskGraph() != this)
+            {
+                throw new IllegalArgumentException(
+                    "The dependency " + dependency + 
+                    " does not belong to this graph");
+            }
+        }
+        TaskGraphNode<T> node = new TaskGraphNode<T>(
+            this, nodes.size(), task, cost, Arrays.asList(dependencies));
+        for (TaskGraphNode<?> dependency : node.getDependencies())
+        {
+            dependency.getDependents().add(node);
+        }
+        nodes.add(node);
+        return node;
+    }
+    
+    /**
+     * Returns an unmodifiable view on the nodes of this graph
+     * 
+     * @return The nodes
+     */
+    public List<TaskGraphNode<?>> getNodes()
+    {
+        return Collections.unmodifiableList(nodes);
+    }
+    
+    /**
+     * Start the execution of this graph. All tasks that do not have
+     * dependencies will be submitted to the executor service immediately.
+     * The other tasks will be submitted as soon as all their dependencies 
+     * have been completed.<br>
+     * <br>
+     * The returned future will be completed when all tasks are done. If
+     * any task failed or was cancelled, then the future will be completed
+     * exceptionally with the first exception. Cancelling the returned
+     * future will cancel all tasks that are not done yet.
+     * 
+     * @return The future that is completed when all tasks are done
+     * @throws IllegalStateException If this graph was already executed
+     */
+    public CompletableFuture<Void> execute()
+    {
+        List<TaskGraphNode<?>> roots = new ArrayList<TaskGraphNode<?>>();
+        synchronized (this)
+        {
+            if (!executed.compareAndSet(false, true))
+            {
+                throw new IllegalStateException(
+                    "The graph was already executed");
+            }
+            remainingNodes.set(nodes.size());
+            remainingCosts = new double[nodes.size()];
+            criticalPathCost = computeRemainingCriticalPathCost();
+            for (TaskGraphNode<?> node : nodes)
+            {
+                if (node.getDependencies().isEmpty())
+                {
+                    roots.add(node);
+                }
+            }
+        }
+        completion.whenComplete((r, t) -> 
+        {
+            if (completion.isCancelled())
+            {
+                for (TaskGraphNode<?> node : nodes)
+                {
+                    node.getObservableTask().cancel(true);
+                }
+            }
+        });
+        if (nodes.isEmpty())
+        {
+            completion.complete(null);
+            return completion;
+        }
+        for (TaskGraphNode<?> root : roots)
+        {
+            submit(root);
+        }
+        return completion;
+    }
+    
+    /**
+     * Submit the task of the given node to the executor service, unless
+     * it was already cancelled
+     * 
+     * @param node The node
+     */
+    private void submit(TaskGraphNode<?> node)
+    {
+        ObservableTask<?> observableTask = node.getObservableTask();
+        if (observableTask.isDone())
+        {
+            return;
+        }
+        try
+        {
+            executorService.execute(observableTask);
+        }
+        catch (RejectedExecutionException e)
+        {
+            failure.compareAndSet(null, e);
+            observableTask.cancel(false);
+        }
+    }
+    
+    /**
+     * Will be called when the task of the given node is done. If it 
+     * completed successfully, then all dependent nodes whose dependencies
+     * are now all completed will be submitted. Otherwise, all dependent 
+     * nodes will be cancelled.
+     * 
+     * @param node The node
+     */
+    void nodeDone(TaskGraphNode<?> node)
+    {
+        Throwable throwable = null;
+        try
+        {
+            node.getObservableTask().get();
+        }
+        catch (CancellationException e)
+        {
+            throwable = e;
+        }
+        catch (ExecutionException e)
+        {
+            throwable = e.getCause();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throwable = e;
+        }
+        if (throwable == null)
+        {
+            for (TaskGraphNode<?> dependent : node.getDependents())
+            {
+                if (dependent.dependencyCompleted())
+                {
+                    submit(dependent);
+                }
+            }
+        }
+        else
+        {
+            failure.compareAndSet(null, throwable);
+            for (TaskGraphNode<?> dependent : node.getDependents())
+            {
+                dependent.getObservableTask().cancel(false);
+            }
+        }
+        updateProgress();
+        if (remainingNodes.decrementAndGet() == 0)
+        {
+            Throwable firstFailure = failure.get();
+            if (firstFailure == null)
+            {
+                completion.complete(null);
+            }
+            else
+            {
+                completion.completeExceptionally(firstFailure);
+            }
+        }
+    }
+    
+    /**
+     * Returns the current progress of this graph, as a value between 
+     * 0.0 and 1.0, based on the critical path. This is the value that
+     * was most recently computed on the Event Dispatch Thread, and may
+     * lag behind the progress of the tasks.
+     * 
+     * @return The progress
+     */
+    public double getProgress()
+    {
+        return progress;
+    }
+    
+    /**
+     * Will be called when the progress of a node changed, or a node is 
+     * done. This does not compute the progress, because this would require
+     * a pass over the whole graph for each progress update of each task.
+     * Instead, it schedules a single computation via the {@link UpdatePump},
+     * unless one is already pending. 
+     */
+    void updateProgress()
+    {
+        if (!executed.get())
+        {
+            return;
+        }
+        if (progressUpdatePending.compareAndSet(false, true))
+        {
+            UpdatePump.schedule(progressUpdate);
+        }
+    }
+    
+    /**
+     * Compute the progress of this graph, and inform the registered 
+     * {@link ProgressListener}s if it changed. Called on the Event
+     * Dispatch Thread.
+     */
+    private void computeProgress()
+    {
+        // Reset the flag before computing, so that progress updates that 
+        // happen during the computation will schedule another one
+        progressUpdatePending.set(false);
+        double remainingCost = computeRemainingCriticalPathCost();
+        double totalCost = criticalPathCost;
+        double newProgress = 1.0;
+        if (totalCost > 0)
+        {
+            newProgress = 1.0 - remainingCost / totalCost;
+        }
+        newProgress = Math.max(0.0, Math.min(1.0, newProgress));
+        if (newProgress != progress)
+        {
+            progress = newProgress;
+            dispatchingProgressListener.progressChanged(newProgress);
+        }
+    }
+    
+    /**
+     * Compute the remaining cost of the critical path, which is the 
+     * maximum remaining cost of all paths through the graph. The 
+     * remaining cost of a node is zero if it is done, and its 
+     * cost multiplied with its remaining progress otherwise.
+     * 
+     * @return The remaining cost of the critical path
+     */
+    private double computeRemainingCriticalPathCost()
+    {
+        double maxRemainingCost = 0.0;
+        for (int i = nodes.size() - 1; i >= 0; i--)
+        {
+            TaskGraphNode<?> node = nodes.get(i);
+            double ownCost = 0.0;
+            if (!node.getObservableTask().isDone())
+            {
+                ownCost = node.getCost() * (1.0 - node.getProgress());
+            }
+            double maxDependentCost = 0.0;
+            for (TaskGraphNode<?> dependent : node.getDependents())
+            {
+                maxDependentCost = Math.max(
+                    maxDependentCost, remainingCosts[dependent.getIndex()]);
+            }
+            double remainingCost = ownCost + maxDependentCost;
+            remainingCosts[i] = remainingCost;
+            maxRemainingCost = Math.max(maxRemainingCost, remainingCost);
+        }
+        return maxRemainingCost;
+    }
+    
+    @Override
+    public String getDescription()
+    {
+        return description;
+    }
+
+    @Override
+    public void addProgressListener(ProgressListener progressListener)
+    {
+        dispatchingProgressListener.addProgressListener(progressListener);
+    }
+
+    @Override
+    public void removeProgressListener(ProgressListener progressListener)
+    {
+        dispatchingProgressListener.removeProgressListener(progressListener);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "TaskGraph[description=" + description + 
+            ", nodes=" + nodes.size() + "]";
+    }
+}
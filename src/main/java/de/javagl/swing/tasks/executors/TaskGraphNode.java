@@ -0,0 +1,306 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.javagl.swing.tasks.ProgressListener;
+
+/**
+ * A node in a {@link TaskGraph}. Instances of this class are created
+ * with {@link TaskGraph#addTask(GenericProgressTask, double, 
+ * TaskGraphNode...)}.
+ *
+ * @param <T> The result type of the task
+ */
+public final class TaskGraphNode<T>
+{
+    /**
+     * The {@link TaskGraph} that this node belongs to
+     */
+    private final TaskGraph taskGraph;
+    
+    /**
+     * The index of this node in the {@link TaskGraph}
+     */
+    private final int index;
+    
+    /**
+     * The task
+     */
+    private final GenericProgressTask<T> task;
+    
+    /**
+     * The estimated cost of the task, used for computing the
+     * critical path
+     */
+    private final double cost;
+    
+    /**
+     * The nodes that this node depends on
+     */
+    private final List<TaskGraphNode<?>> dependencies;
+    
+    /**
+     * The nodes that depend on this node
+     */
+    private final List<TaskGraphNode<?>> dependents;
+    
+    /**
+     * The number of dependencies that have not been completed yet
+     */
+    private final AtomicInteger pendingDependencies;
+    
+    /**
+     * The future that executes the task
+     */
+    private final NodeTask future;
+    
+    /**
+     * The latest progress of the task, between 0.0 and 1.0
+     */
+    private volatile double progress;
+    
+    /**
+     * Implementation of an {@link ObservableTask} that informs the
+     * {@link TaskGraph} when it is done
+     */
+    private class NodeTask extends ObservableTask<T>
+    {
+        /**
+         * Creates a new instance
+         */
+        NodeTask()
+        {
+            super(task);
+        }
+        
+        @Override
+        protected void done()
+        {
+            super.done();
+            taskGraph.nodeDone(TaskGraphNode.this);
+        }
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param taskGraph The {@link TaskGraph}
+     * @param index The index of this node in the graph
+     * @param task The task
+     * @param cost The estimated cost
+     * @param dependencies The dependencies
+     */
+    TaskGraphNode(TaskGraph taskGraph, int index, 
+        GenericProgressTask<T> task, double cost, 
+        List<TaskGraphNode<?>> dependencies)
+    {
+        this.taskGraph = taskGraph;
+        this.index = index;
+        this.task = task;
+        this.cost = cost;
+        this.dependencies = Collections.unmodifiableList(
+            new ArrayList<TaskGraphNode<?>>(dependencies));
+        this.dependents = new ArrayList<TaskGraphNode<?>>();
+        this.pendingDependencies = new AtomicInteger(dependencies.size());
+        this.future = new NodeTask();
+        
+        task.addProgressListener(new ProgressListener()
+        {
+            @Override
+            public void progressChanged(double progress)
+            {
+                if (progress >= 0)
+                {
+                    TaskGraphNode.this.progress = Math.min(1.0, progress);
+                    taskGraph.updateProgress();
+                }
+            }
+            
+            @Override
+            public void messageChanged(String message)
+            {
+                // Not used here
+            }
+        });
+    }
+    
+    /**
+     * Returns the task of this node
+     * 
+     * @return The task
+     */
+    public GenericProgressTask<T> getTask()
+    {
+        return task;
+    }
+    
+    /**
+     * Returns the future for the execution of the task. This future
+     * will be cancelled when one of the dependencies of this node
+     * failed or was cancelled.
+     * 
+     * @return The future
+     */
+    public Future<T> getFuture()
+    {
+        return future;
+    }
+    
+    /**
+     * Returns the result of the task of this node. This is intended to 
+     * be called by the tasks of nodes that depend on this node, to 
+     * obtain their inputs.
+     * 
+     * @return The result
+     * @throws IllegalStateException If the task was not completed 
+     * successfully
+     */
+    public T getResult()
+    {
+        if (!future.isDone())
+        {
+            throw new IllegalStateException(
+                "The task " + task.getDescription() + " is not done");
+        }
+        try
+        {
+            return future.get();
+        }
+        catch (CancellationException e)
+        {
+            throw new IllegalStateException(
+                "The task " + task.getDescription() + " was cancelled", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(
+                "The task " + task.getDescription() + " failed", e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                "Interrupted while obtaining the result", e);
+        }
+    }
+    
+    /**
+     * Returns the index of this node in the {@link TaskGraph}
+     * 
+     * @return The index
+     */
+    int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * Returns the {@link TaskGraph} that this node belongs to
+     * 
+     * @return The {@link TaskGraph}
+     */
+    TaskGraph getTaskGraph()
+    {
+        return taskGraph;
+    }
+    
+    /**
+     * Returns the estimated cost of the task
+     * 
+     * @return The cost
+     */
+    double getCost()
+    {
+        return cost;
+    }
+    
+    /**
+     * Returns the latest progress of the task, between 0.0 and 1.0
+     * 
+     * @return The progress
+     */
+    double getProgress()
+    {
+        return progress;
+    }
+    
+    /**
+     * Returns the nodes that this node depends on
+     * 
+     * @return The dependencies
+     */
+    List<TaskGraphNode<?>> getDependencies()
+    {
+        return dependencies;
+    }
+    
+    /**
+     * Returns the nodes that depend on this node. This list is only 
+     * modified while the graph is being built.
+     * 
+     * @return The dependents
+     */
+    List<TaskGraphNode<?>> getDependents()
+    {
+        return dependents;
+    }
+    
+    /**
+     * Returns the internal future for this node
+     * 
+     * @return The future
+     */
+    ObservableTask<T> getObservableTask()
+    {
+        return future;
+    }
+    
+    /**
+     * Decrement the number of pending dependencies, and return whether 
+     * all dependencies have been completed
+     * 
+     * @return Whether all dependencies have been completed
+     */
+    boolean dependencyCompleted()
+    {
+        return pendingDependencies.decrementAndGet() == 0;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "TaskGraphNode[" + task.getDescription() + "]";
+    }
+}
@@ -28,9 +28,6 @@ package de.javagl.swing.tasks.executors;
 
 import java.awt.Color;
 
-import javax.swing.DefaultListModel;
-import javax.swing.JList;
-
 /**
  * A class representing the view for a task that is executed 
  * in an {@link ObservableExecutorService}.<br>
@@ -38,7 +35,17 @@ import javax.swing.JList;
  * Instances of this class will be created by the
  * {@link ObservableExecutorPanel}, and passed to the 
  * {@link TaskViewHandler} that was assigned to the 
- * {@link ObservableExecutorPanel}, for further configuration.
+ * {@link ObservableExecutorPanel}, for further configuration.<br>
+ * <br>
+ * If the {@link ObservableExecutorPanel#setMaximumFinishedTaskCount(int)
+ * maximum number of finished tasks} of the {@link ObservableExecutorPanel}
+ * is limited, then after the task has been executed and the 
+ * {@link TaskViewHandler} has been notified about this, the state of the 
+ * task view is stored in a compact form, and the task view itself is no 
+ * longer associated with the {@link ObservableExecutorPanel}. Task views 
+ * that are obtained from the list of the {@link ObservableExecutorPanel} 
+ * for such tasks are snapshots of this state. They may be stored, but
+ * modifying them will not affect the list.
  */
 public final class TaskView
 {
@@ -64,25 +71,58 @@ public final class TaskView
     private Throwable throwable;
     
     /**
-     * The list model that contains this task view
+     * The list model that contains this task view. This may be 
+     * <code>null</code> for task views that are only used for 
+     * computing the cell size.
      */
-    private final DefaultListModel<TaskView> listModel;
+    private final TaskViewListModel listModel;
     
     /**
-     * The list that displays this task view
+     * The index of this task view in the list model, or -1 if it is
+     * not contained in the list model
      */
-    private final JList<TaskView> list;
+    private int index = -1;
     
     /**
      * Default constructor
      * 
      * @param listModel The list model that contains this task view
-     * @param list The list that displays this task view
      */
-    TaskView(DefaultListModel<TaskView> listModel, JList<TaskView> list)
+    TaskView(TaskViewListModel listModel)
     {
         this.listModel = listModel;
-        this.list = list;
+    }
+    
+    /**
+     * Set the index of this task view in the list model
+     * 
+     * @param index The index
+     */
+    void setIndex(int index)
+    {
+        this.index = index;
+    }
+    
+    /**
+     * Returns the index of this task view in the list model, or -1 if
+     * it is not contained in the list model
+     * 
+     * @return The index
+     */
+    int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * Notify the list model that this task view has changed
+     */
+    private void changed()
+    {
+        if (listModel != null)
+        {
+            listModel.changed(this);
+        }
     }
     
     /**
@@ -93,7 +133,7 @@ public final class TaskView
     public void setText(String text)
     {
         this.text = text;
-        this.list.repaint();
+        changed();
     }
     
     /**
@@ -116,7 +156,7 @@ public final class TaskView
     public void setProgress(double progress)
     {
         this.progress = progress;
-        this.list.repaint();
+        changed();
     }
     
     /**
@@ -159,7 +199,7 @@ public final class TaskView
     public void setForegroundColor(Color color)
     {
         this.foregroundColor = color;
-        this.list.repaint();
+        changed();
     }
     
     /**
@@ -178,6 +218,9 @@ public final class TaskView
      */
     public void remove()
     {
-        listModel.removeElement(this);
+        if (listModel != null)
+        {
+            listModel.remove(this);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,836 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.FontMetrics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.SwingUtilities;
+
+/**
+ * A list model for the {@link TaskView}s in an 
+ * {@link ObservableExecutorPanel}.<br>
+ * <br>
+ * The rows of this model are stored in parallel arrays. Each row refers 
+ * to the {@link TaskView} that is passed to the {@link TaskViewHandler}.
+ * <br>
+ * <br>
+ * The number of finished rows may be limited. When the limit is exceeded,
+ * then the oldest finished rows are removed, and only counted. Only when 
+ * such a limit is set, the state of the {@link TaskView} of a task that 
+ * is {@link #finish finished} is copied into the arrays, and the 
+ * {@link TaskView} is released. For these rows, 
+ * {@link #getElementAt(int)} returns a new {@link TaskView} that is a 
+ * snapshot of the state of the row.<br>
+ * <br>
+ * Each active {@link TaskView} stores its index, so that a change of a 
+ * single {@link TaskView} only causes the cell of this {@link TaskView}
+ * to be repainted, in constant time. Such a change does not fire an 
+ * event, because the elements of the model do not change. The list is 
+ * assumed to have a fixed cell height. The fixed cell width is increased
+ * when a longer text is displayed. Removals are collected, and applied 
+ * in one pass over the rows, later on the Event Dispatch Thread.<br>
+ * <br>
+ * Between calls to {@link #beginBatch()} and {@link #endBatch()}, no
+ * events are fired. Instead, the rows that have been added and changed 
+ * are recorded. The added rows are reported with one event, and the 
+ * changed rows are repainted, at the end of the batch, where the 
+ * pending removals are also applied. All methods of 
+ * this class must be called on the Event Dispatch Thread.
+ */
+final class TaskViewListModel extends AbstractListModel<TaskView>
+{
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 6427163807727935562L;
+    
+    /**
+     * The state of a row of an active task
+     */
+    private static final byte ACTIVE = 0;
+    
+    /**
+     * The state of a row of a task that completed successfully
+     */
+    private static final byte FINISHED = 1;
+    
+    /**
+     * The state of a row of a task that failed
+     */
+    private static final byte FAILED = 2;
+    
+    /**
+     * The state of a row that was removed, but not yet taken out of
+     * the arrays
+     */
+    private static final byte REMOVED = 3;
+    
+    /**
+     * The foreground color value that indicates that no color was set
+     */
+    private static final int NO_COLOR = 0;
+    
+    /**
+     * The initial capacity of the arrays
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /**
+     * The number of rows
+     */
+    private int size;
+    
+    /**
+     * The states of the rows
+     */
+    private byte[] states;
+    
+    /**
+     * The {@link TaskView}s of the rows, or <code>null</code> for rows
+     * of finished tasks whose state has been copied into the arrays
+     */
+    private TaskView[] taskViews;
+    
+    /**
+     * The texts of the rows of finished tasks
+     */
+    private String[] texts;
+    
+    /**
+     * The ARGB foreground colors of the rows of finished tasks
+     */
+    private int[] foregroundColors;
+    
+    /**
+     * The progress of the rows of finished tasks
+     */
+    private float[] progresses;
+    
+    /**
+     * The throwables of the rows of finished tasks
+     */
+    private Throwable[] throwables;
+    
+    /**
+     * The colors for the ARGB values that appear in the 
+     * {@link #foregroundColors}
+     */
+    private final Map<Integer, Color> colors;
+    
+    /**
+     * The number of rows that have been removed, but not yet been 
+     * taken out of the arrays
+     */
+    private int pendingRemovalCount;
+    
+    /**
+     * The number of rows of finished tasks
+     */
+    private int finishedCount;
+    
+    /**
+     * The maximum number of rows of finished tasks
+     */
+    private int maximumFinishedCount;
+    
+    /**
+     * The indices of the rows of finished tasks, in the order in which 
+     * the tasks have been finished. The valid entries are the ones 
+     * between the {@link #finishedRowsStart} and the 
+     * {@link #finishedRowsEnd}.
+     */
+    private int[] finishedRows;
+    
+    /**
+     * The start of the valid entries in the {@link #finishedRows}
+     */
+    private int finishedRowsStart;
+    
+    /**
+     * The end of the valid entries in the {@link #finishedRows}
+     */
+    private int finishedRowsEnd;
+    
+    /**
+     * The number of rows of successfully finished tasks that have been 
+     * removed because the maximum number of finished rows was exceeded
+     */
+    private long evictedFinishedCount;
+    
+    /**
+     * The number of rows of failed tasks that have been removed because
+     * the maximum number of finished rows was exceeded
+     */
+    private long evictedFailedCount;
+    
+    /**
+     * Whether a batch update is currently in progress
+     */
+    private boolean batching;
+    
+    /**
+     * The index of the first row that was added during the current batch,
+     * or -1 if no rows have been added
+     */
+    private int batchAddedIndex;
+    
+    /**
+     * The smallest index of a row that was changed during the current 
+     * batch, or -1 if no rows have been changed
+     */
+    private int batchChangedMinIndex;
+    
+    /**
+     * The largest index of a row that was changed during the current 
+     * batch, or -1 if no rows have been changed
+     */
+    private int batchChangedMaxIndex;
+    
+    /**
+     * The list that displays this model
+     */
+    private final JList<TaskView> list;
+    
+    /**
+     * The width of the longest text that was displayed in the list,
+     * in pixels
+     */
+    private int maximumTextWidth;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param list The list that will display this model
+     */
+    TaskViewListModel(JList<TaskView> list)
+    {
+        this.list = list;
+        this.states = new byte[INITIAL_CAPACITY];
+        this.taskViews = new TaskView[INITIAL_CAPACITY];
+        this.texts = new String[INITIAL_CAPACITY];
+        this.foregroundColors = new int[INITIAL_CAPACITY];
+        this.progresses = new float[INITIAL_CAPACITY];
+        this.throwables = new Throwable[INITIAL_CAPACITY];
+        this.colors = new HashMap<Integer, Color>();
+        this.finishedRows = new int[INITIAL_CAPACITY];
+        this.maximumFinishedCount = Integer.MAX_VALUE;
+        resetBatch();
+    }
+    
+    @Override
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public TaskView getElementAt(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(
+                "Index " + index + ", size " + size);
+        }
+        TaskView taskView = taskViews[index];
+        if (taskView != null)
+        {
+            return taskView;
+        }
+        int foregroundColor = foregroundColors[index];
+        TaskView finishedTaskView = new TaskView(null);
+        finishedTaskView.setText(texts[index]);
+        finishedTaskView.setForegroundColor(foregroundColor == NO_COLOR ? 
+            null : colors.get(foregroundColor));
+        finishedTaskView.setProgress(progresses[index]);
+        finishedTaskView.setThrowable(throwables[index]);
+        return finishedTaskView;
+    }
+    
+    /**
+     * Add the given {@link TaskView} of an active task at the end of 
+     * this model
+     * 
+     * @param taskView The {@link TaskView}
+     */
+    void add(TaskView taskView)
+    {
+        ensureCapacity(size + 1);
+        int index = size;
+        states[index] = ACTIVE;
+        taskViews[index] = taskView;
+        taskView.setIndex(index);
+        size++;
+        if (batching)
+        {
+            if (batchAddedIndex < 0)
+            {
+                batchAddedIndex = index;
+            }
+            return;
+        }
+        fireIntervalAdded(this, index, index);
+    }
+    
+    /**
+     * Remove the given {@link TaskView} from this model. The 
+     * {@link TaskView} will remain visible until the pending removals
+     * are applied, later on the Event Dispatch Thread.
+     * 
+     * @param taskView The {@link TaskView}
+     */
+    void remove(TaskView taskView)
+    {
+        int index = indexOf(taskView);
+        if (index >= 0)
+        {
+            markRemoved(index);
+        }
+    }
+    
+    /**
+     * Notify this model that the task of the given {@link TaskView} has 
+     * finished. If the number of finished rows is limited, then the 
+     * state of the {@link TaskView} will be stored in this model, and 
+     * the {@link TaskView} will no longer be associated with this model. 
+     * If this causes the maximum number of finished rows to be exceeded, 
+     * then the oldest finished rows will be removed.
+     * 
+     * @param taskView The {@link TaskView}
+     * @param failed Whether the task failed
+     */
+    void finish(TaskView taskView, boolean failed)
+    {
+        int index = indexOf(taskView);
+        if (index < 0)
+        {
+            return;
+        }
+        states[index] = failed ? FAILED : FINISHED;
+        finishedCount++;
+        addFinishedRow(index);
+        if (maximumFinishedCount != Integer.MAX_VALUE)
+        {
+            compact(index);
+            evictFinished();
+        }
+    }
+    
+    /**
+     * Copy the state of the {@link TaskView} of the given row of a 
+     * finished task into the arrays, and release the {@link TaskView}
+     * 
+     * @param index The row index
+     */
+    private void compact(int index)
+    {
+        TaskView taskView = taskViews[index];
+        if (taskView == null)
+        {
+            return;
+        }
+        texts[index] = taskView.getText();
+        Color foregroundColor = taskView.getForegroundColor();
+        if (foregroundColor == null || foregroundColor.getRGB() == NO_COLOR)
+        {
+            foregroundColors[index] = NO_COLOR;
+        }
+        else
+        {
+            int rgb = foregroundColor.getRGB();
+            foregroundColors[index] = rgb;
+            colors.putIfAbsent(rgb, foregroundColor);
+        }
+        progresses[index] = (float)taskView.getProgress();
+        throwables[index] = taskView.getThrowable();
+        taskViews[index] = null;
+        taskView.setIndex(-1);
+    }
+    
+    /**
+     * Set the maximum number of rows of finished tasks. If this number
+     * is exceeded, then the oldest finished rows will be removed. If the
+     * given number is <code>Integer.MAX_VALUE</code>, then the number of 
+     * finished rows is not limited, and their {@link TaskView}s remain
+     * associated with this model. Otherwise, the existing rows of 
+     * finished tasks are compacted.
+     * 
+     * @param maximumFinishedCount The maximum number of finished rows
+     */
+    void setMaximumFinishedCount(int maximumFinishedCount)
+    {
+        this.maximumFinishedCount = maximumFinishedCount;
+        if (maximumFinishedCount != Integer.MAX_VALUE)
+        {
+            for (int i = finishedRowsStart; i < finishedRowsEnd; i++)
+            {
+                int index = finishedRows[i];
+                byte state = states[index];
+                if (state == FINISHED || state == FAILED)
+                {
+                    compact(index);
+                }
+            }
+            evictFinished();
+        }
+    }
+    
+    /**
+     * Returns the number of rows of successfully finished tasks that have 
+     * been removed because the maximum number of finished rows was exceeded
+     * 
+     * @return The number of removed rows
+     */
+    long getEvictedFinishedCount()
+    {
+        return evictedFinishedCount;
+    }
+    
+    /**
+     * Returns the number of rows of failed tasks that have been removed 
+     * because the maximum number of finished rows was exceeded
+     * 
+     * @return The number of removed rows
+     */
+    long getEvictedFailedCount()
+    {
+        return evictedFailedCount;
+    }
+    
+    /**
+     * Remove all rows from this model, and reset the number of 
+     * removed rows
+     */
+    void clear()
+    {
+        int oldSize = size;
+        for (int i = 0; i < size; i++)
+        {
+            if (taskViews[i] != null)
+            {
+                taskViews[i].setIndex(-1);
+            }
+        }
+        size = 0;
+        pendingRemovalCount = 0;
+        finishedCount = 0;
+        finishedRows = new int[INITIAL_CAPACITY];
+        finishedRowsStart = 0;
+        finishedRowsEnd = 0;
+        evictedFinishedCount = 0;
+        evictedFailedCount = 0;
+        states = new byte[INITIAL_CAPACITY];
+        taskViews = new TaskView[INITIAL_CAPACITY];
+        texts = new String[INITIAL_CAPACITY];
+        foregroundColors = new int[INITIAL_CAPACITY];
+        progresses = new float[INITIAL_CAPACITY];
+        throwables = new Throwable[INITIAL_CAPACITY];
+        colors.clear();
+        resetBatch();
+        if (oldSize > 0)
+        {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+    
+    /**
+     * Notify this model that the given {@link TaskView} has changed,
+     * and has to be repainted
+     * 
+     * @param taskView The {@link TaskView}
+     */
+    void changed(TaskView taskView)
+    {
+        int index = indexOf(taskView);
+        if (index < 0)
+        {
+            return;
+        }
+        updateCellWidth(taskView);
+        if (!batching)
+        {
+            repaintRows(index, index);
+            return;
+        }
+        if (batchAddedIndex >= 0 && index >= batchAddedIndex)
+        {
+            // The row will be reported as added at the end of the batch
+            return;
+        }
+        if (batchChangedMinIndex < 0 || index < batchChangedMinIndex)
+        {
+            batchChangedMinIndex = index;
+        }
+        if (index > batchChangedMaxIndex)
+        {
+            batchChangedMaxIndex = index;
+        }
+    }
+    
+    /**
+     * Begin a batch update. Until {@link #endBatch()} is called, no
+     * events will be fired.
+     */
+    void beginBatch()
+    {
+        batching = true;
+    }
+    
+    /**
+     * End a batch update. This will fire one event for the rows that 
+     * have been changed and one event for the rows that have been added 
+     * since {@link #beginBatch()} was called, and apply the pending 
+     * removals.
+     */
+    void endBatch()
+    {
+        batching = false;
+        int addedIndex = batchAddedIndex;
+        int changedMinIndex = batchChangedMinIndex;
+        int changedMaxIndex = batchChangedMaxIndex;
+        resetBatch();
+        if (changedMinIndex >= 0)
+        {
+            repaintRows(changedMinIndex, changedMaxIndex);
+        }
+        if (addedIndex >= 0)
+        {
+            fireIntervalAdded(this, addedIndex, size - 1);
+        }
+        applyRemovals();
+    }
+    
+    /**
+     * Repaint the cells of the given range of rows in the list
+     * 
+     * @param minIndex The minimum index, inclusive
+     * @param maxIndex The maximum index, inclusive
+     */
+    private void repaintRows(int minIndex, int maxIndex)
+    {
+        Rectangle cellBounds = list.getCellBounds(minIndex, maxIndex);
+        if (cellBounds != null)
+        {
+            list.repaint(cellBounds);
+        }
+    }
+    
+    /**
+     * Make sure that the fixed cell width of the list is large enough 
+     * for displaying the given {@link TaskView}. The cell renderer is 
+     * only asked for the size when the text is wider than all texts 
+     * that have been displayed before.
+     * 
+     * @param taskView The {@link TaskView}
+     */
+    private void updateCellWidth(TaskView taskView)
+    {
+        String text = taskView.getText();
+        if (text == null)
+        {
+            return;
+        }
+        FontMetrics fontMetrics = list.getFontMetrics(list.getFont());
+        int textWidth = fontMetrics.stringWidth(text);
+        if (textWidth <= maximumTextWidth)
+        {
+            return;
+        }
+        maximumTextWidth = textWidth;
+        ListCellRenderer<? super TaskView> cellRenderer = 
+            list.getCellRenderer();
+        Component component = cellRenderer.getListCellRendererComponent(
+            list, taskView, Math.max(0, taskView.getIndex()), false, false);
+        int width = component.getPreferredSize().width;
+        if (width > list.getFixedCellWidth())
+        {
+            list.setFixedCellWidth(width);
+        }
+    }
+    
+    /**
+     * Make sure that the fixed cell width of the list is large enough 
+     * for displaying all rows. This has to be called when the cell 
+     * renderer of the list was changed.
+     */
+    void updateCellWidths()
+    {
+        maximumTextWidth = 0;
+        for (int i = 0; i < size; i++)
+        {
+            updateCellWidth(getElementAt(i));
+        }
+    }
+    
+    /**
+     * Reset the information about the rows that have been added and 
+     * changed during the current batch
+     */
+    private void resetBatch()
+    {
+        batchAddedIndex = -1;
+        batchChangedMinIndex = -1;
+        batchChangedMaxIndex = -1;
+    }
+    
+    /**
+     * Returns the index of the row of the given {@link TaskView}, or -1 if
+     * the {@link TaskView} is not the {@link TaskView} of an active row
+     * of this model
+     * 
+     * @param taskView The {@link TaskView}
+     * @return The index
+     */
+    private int indexOf(TaskView taskView)
+    {
+        int index = taskView.getIndex();
+        if (index < 0 || index >= size || taskViews[index] != taskView)
+        {
+            return -1;
+        }
+        return index;
+    }
+    
+    /**
+     * Remove the oldest rows of finished tasks, until the maximum number
+     * of finished rows is no longer exceeded
+     */
+    private void evictFinished()
+    {
+        while (finishedCount > maximumFinishedCount && 
+            finishedRowsStart < finishedRowsEnd)
+        {
+            int index = finishedRows[finishedRowsStart];
+            finishedRowsStart++;
+            byte state = states[index];
+            if (state == FINISHED || state == FAILED)
+            {
+                if (state == FAILED)
+                {
+                    evictedFailedCount++;
+                }
+                else
+                {
+                    evictedFinishedCount++;
+                }
+                markRemoved(index);
+            }
+        }
+    }
+    
+    /**
+     * Append the given row index to the {@link #finishedRows}
+     * 
+     * @param index The row index
+     */
+    private void addFinishedRow(int index)
+    {
+        if (finishedRowsEnd == finishedRows.length)
+        {
+            int count = finishedRowsEnd - finishedRowsStart;
+            if (count * 2 > finishedRows.length)
+            {
+                finishedRows = Arrays.copyOfRange(
+                    finishedRows, finishedRowsStart, 
+                    finishedRowsStart + count * 2);
+            }
+            else
+            {
+                System.arraycopy(finishedRows, finishedRowsStart, 
+                    finishedRows, 0, count);
+            }
+            finishedRowsStart = 0;
+            finishedRowsEnd = count;
+        }
+        finishedRows[finishedRowsEnd] = index;
+        finishedRowsEnd++;
+    }
+    
+    /**
+     * Mark the given row as removed, and make sure that the removals 
+     * are applied later
+     * 
+     * @param index The row index
+     */
+    private void markRemoved(int index)
+    {
+        byte state = states[index];
+        if (state == FINISHED || state == FAILED)
+        {
+            finishedCount--;
+        }
+        states[index] = REMOVED;
+        if (taskViews[index] != null)
+        {
+            taskViews[index].setIndex(-1);
+        }
+        pendingRemovalCount++;
+        if (pendingRemovalCount == 1)
+        {
+            SwingUtilities.invokeLater(() -> applyRemovals());
+        }
+    }
+    
+    /**
+     * Take all removed rows out of the arrays, in a single pass, and 
+     * update the indices of the {@link TaskView}s of the remaining ones.
+     * One event is fired for each contiguous range of removed rows,
+     * starting at the end of the list, so that the selection of the
+     * list is preserved.
+     */
+    private void applyRemovals()
+    {
+        if (pendingRemovalCount == 0 || batching)
+        {
+            return;
+        }
+        pendingRemovalCount = 0;
+        
+        // Remove the rows while recording the removed ranges, and the
+        // new indices of the remaining rows
+        List<int[]> removedRanges = new ArrayList<int[]>();
+        int oldSize = size;
+        int newIndices[] = new int[oldSize];
+        int target = 0;
+        int rangeStart = -1;
+        for (int i = 0; i < oldSize; i++)
+        {
+            if (states[i] == REMOVED)
+            {
+                newIndices[i] = -1;
+                if (rangeStart < 0)
+                {
+                    rangeStart = i;
+                }
+                continue;
+            }
+            newIndices[i] = target;
+            if (rangeStart >= 0)
+            {
+                removedRanges.add(new int[] { rangeStart, i - 1 });
+                rangeStart = -1;
+            }
+            move(i, target);
+            target++;
+        }
+        if (rangeStart >= 0)
+        {
+            removedRanges.add(new int[] { rangeStart, oldSize - 1 });
+        }
+        Arrays.fill(taskViews, target, oldSize, null);
+        Arrays.fill(texts, target, oldSize, null);
+        Arrays.fill(throwables, target, oldSize, null);
+        size = target;
+        
+        // Update the indices of the finished rows
+        int finishedTarget = 0;
+        for (int i = finishedRowsStart; i < finishedRowsEnd; i++)
+        {
+            int newIndex = newIndices[finishedRows[i]];
+            if (newIndex >= 0)
+            {
+                finishedRows[finishedTarget] = newIndex;
+                finishedTarget++;
+            }
+        }
+        finishedRowsStart = 0;
+        finishedRowsEnd = finishedTarget;
+        
+        if (size < states.length / 4 && states.length > INITIAL_CAPACITY)
+        {
+            resize(Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        
+        for (int i = removedRanges.size() - 1; i >= 0; i--)
+        {
+            int range[] = removedRanges.get(i);
+            fireIntervalRemoved(this, range[0], range[1]);
+        }
+    }
+    
+    /**
+     * Move the row at the given source index to the given target index
+     * 
+     * @param source The source index
+     * @param target The target index
+     */
+    private void move(int source, int target)
+    {
+        if (source == target)
+        {
+            return;
+        }
+        states[target] = states[source];
+        taskViews[target] = taskViews[source];
+        texts[target] = texts[source];
+        foregroundColors[target] = foregroundColors[source];
+        progresses[target] = progresses[source];
+        throwables[target] = throwables[source];
+        if (taskViews[target] != null)
+        {
+            taskViews[target].setIndex(target);
+        }
+    }
+    
+    /**
+     * Make sure that the arrays can store the given number of rows
+     * 
+     * @param minimumCapacity The minimum capacity
+     */
+    private void ensureCapacity(int minimumCapacity)
+    {
+        if (minimumCapacity > states.length)
+        {
+            resize(Math.max(minimumCapacity, states.length * 2));
+        }
+    }
+    
+    /**
+     * Resize all arrays to the given capacity
+     * 
+     * @param capacity The capacity
+     */
+    private void resize(int capacity)
+    {
+        states = Arrays.copyOf(states, capacity);
+        taskViews = Arrays.copyOf(taskViews, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        foregroundColors = Arrays.copyOf(foregroundColors, capacity);
+        progresses = Arrays.copyOf(progresses, capacity);
+        throwables = Arrays.copyOf(throwables, capacity);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Package-private utility methods related to virtual threads.<br>
+ * <br>
+ * This is the implementation for Java versions before Java 21, where
+ * virtual threads are not available. The library is built as a 
+ * multi-release JAR, which contains another implementation of this 
+ * class that is used on Java 21 and later.
+ */
+class VirtualThreads
+{
+    /**
+     * Returns whether virtual threads are available
+     * 
+     * @return Whether virtual threads are available
+     */
+    static boolean isAvailable()
+    {
+        return false;
+    }
+    
+    /**
+     * Creates a thread factory that creates virtual threads
+     * 
+     * @return The thread factory
+     * @throws UnsupportedOperationException If virtual threads are not
+     * {@link #isAvailable() available}
+     */
+    static ThreadFactory createThreadFactory()
+    {
+        throw new UnsupportedOperationException(
+            "Virtual threads require Java 21 or later");
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private VirtualThreads()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -9,6 +9,11 @@
  * Such an observable executor service may be displayed in an
  * {@link de.javagl.swing.tasks.executors.ObservableExecutorPanel}, which
  * will show a list of the currently running tasks.
+ * <p>
+ * Tasks that depend on the results of other tasks may be combined in a
+ * {@link de.javagl.swing.tasks.executors.TaskGraph}, which submits each 
+ * task to an observable executor service as soon as its dependencies 
+ * have been completed.
  */
 package de.javagl.swing.tasks.executors;
 
@@ -0,0 +1,66 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.swing.tasks.executors;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Package-private utility methods related to virtual threads.<br>
+ * <br>
+ * This is the implementation for Java 21 and later, which is contained
+ * in the versioned section of the multi-release JAR.
+ */
+class VirtualThreads
+{
+    /**
+     * Returns whether virtual threads are available
+     * 
+     * @return Whether virtual threads are available
+     */
+    static boolean isAvailable()
+    {
+        return true;
+    }
+    
+    /**
+     * Creates a thread factory that creates virtual threads
+     * 
+     * @return The thread factory
+     */
+    static ThreadFactory createThreadFactory()
+    {
+        return Thread.ofVirtual().name("ObservableVirtualThread-", 0).factory();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private VirtualThreads()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
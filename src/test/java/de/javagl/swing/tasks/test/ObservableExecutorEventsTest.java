@@ -0,0 +1,261 @@
+/*
+ * www.javagl.de - Swing Task Utilities
+ *
+ * Copyright (c) 2013-2016 Marco Hutter - http://www.javagl.de
+ */
+package de.javagl.swing.tasks.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.javagl.swing.tasks.executors.ExecutorObserver;
+import de.javagl.swing.tasks.executors.ObservableExecutorService;
+import de.javagl.swing.tasks.executors.ObservableExecutors;
+
+/**
+ * A test for the delivery of events to the {@link ExecutorObserver}s of
+ * an {@link ObservableExecutorService}, with synchronous and with 
+ * asynchronous delivery. It checks that each task is reported exactly 
+ * once as being scheduled, started and finished, in this order, that 
+ * rejected tasks are not reported, that all events are delivered after 
+ * the executor service was shut down, and that an observer that submits 
+ * tasks while the ring buffer is full does not cause a deadlock.
+ */
+public class ObservableExecutorEventsTest
+{
+    /**
+     * The number of tasks to execute
+     */
+    private static final int NUM_TASKS = 2000;
+    
+    /**
+     * The number of threads of the executor service
+     */
+    private static final int NUM_THREADS = 4;
+    
+    /**
+     * The capacity of the ring buffer, which is small so that it is
+     * frequently full
+     */
+    private static final int RING_CAPACITY = 2;
+    
+    /**
+     * Entry point of this test
+     * 
+     * @param args Not used
+     * @throws Exception If the test fails unexpectedly 
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int errors = 0;
+        errors += run(false);
+        errors += run(true);
+        System.out.println("Finished with " + errors + " errors");
+        System.exit(errors == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Run the test with the given delivery mode
+     * 
+     * @param asynchronous Whether the asynchronous delivery should be used
+     * @return The number of errors
+     * @throws Exception If the test fails unexpectedly 
+     */
+    private static int run(boolean asynchronous) throws Exception
+    {
+        ObservableExecutorService executorService = 
+            ObservableExecutors.newFixedThreadPool(NUM_THREADS);
+        if (asynchronous)
+        {
+            executorService.enableAsynchronousObserverDelivery(RING_CAPACITY);
+        }
+        RecordingExecutorObserver observer = 
+            new RecordingExecutorObserver(executorService);
+        executorService.addExecutorObserver(observer);
+        
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < NUM_TASKS; i++)
+        {
+            futures.add(executorService.submit(() -> {}));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executorService.shutdown();
+        
+        // Tasks that are rejected must not be reported
+        Runnable rejected = () -> {};
+        try
+        {
+            executorService.execute(rejected);
+            System.err.println("Task was not rejected after shutdown");
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Expected
+        }
+        if (!executorService.awaitTermination(10, TimeUnit.SECONDS))
+        {
+            System.err.println("Executor service did not terminate");
+            return 1;
+        }
+        
+        // All events must be delivered after the executor terminated
+        int expectedTasks = NUM_TASKS + observer.submittedTasks.get();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (observer.finished.get() < expectedTasks && 
+            System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        
+        int errors = 0;
+        if (observer.finished.get() != expectedTasks)
+        {
+            System.err.println("Expected " + expectedTasks 
+                + " finished tasks, but found " + observer.finished.get());
+            errors++;
+        }
+        if (observer.events.containsKey(rejected))
+        {
+            System.err.println("Rejected task was reported");
+            errors++;
+        }
+        for (Map.Entry<Runnable, List<String>> entry : 
+            observer.events.entrySet())
+        {
+            List<String> events = entry.getValue();
+            if (!events.equals(RecordingExecutorObserver.EXPECTED_EVENTS))
+            {
+                System.err.println("Invalid events for " 
+                    + entry.getKey() + ": " + events);
+                errors++;
+            }
+        }
+        System.out.println((asynchronous ? "Asynchronous" : "Synchronous") 
+            + " delivery: " + observer.finished.get() + " tasks, " 
+            + errors + " errors");
+        return errors;
+    }
+    
+    /**
+     * Implementation of an {@link ExecutorObserver} that records the 
+     * events for each task. It is slow, so that the ring buffer of the
+     * asynchronous delivery is full, and it submits additional tasks 
+     * from within the observer methods.
+     */
+    private static class RecordingExecutorObserver implements ExecutorObserver
+    {
+        /**
+         * The events that are expected for each task
+         */
+        static final List<String> EXPECTED_EVENTS = new ArrayList<String>();
+        static
+        {
+            EXPECTED_EVENTS.add("scheduled");
+            EXPECTED_EVENTS.add("beforeExecute");
+            EXPECTED_EVENTS.add("afterExecute");
+        }
+        
+        /**
+         * The executor service that the observer submits tasks to
+         */
+        private final ObservableExecutorService executorService;
+        
+        /**
+         * The events for each task
+         */
+        private final Map<Runnable, List<String>> events = 
+            new ConcurrentHashMap<Runnable, List<String>>();
+        
+        /**
+         * The number of tasks for which the afterExecute event was received
+         */
+        private final AtomicInteger finished = new AtomicInteger();
+        
+        /**
+         * The number of tasks that have been submitted by this observer
+         */
+        private final AtomicInteger submittedTasks = new AtomicInteger();
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param executorService The executor service
+         */
+        RecordingExecutorObserver(ObservableExecutorService executorService)
+        {
+            this.executorService = executorService;
+        }
+        
+        /**
+         * Record the given event for the given task
+         * 
+         * @param r The task
+         * @param event The event
+         */
+        private void record(Runnable r, String event)
+        {
+            events.computeIfAbsent(
+                r, k -> new CopyOnWriteArrayList<String>()).add(event);
+        }
+        
+        @Override
+        public void scheduled(Runnable r)
+        {
+            record(r, "scheduled");
+            
+            // Submit some tasks from within the observer, which may be 
+            // called on the thread that delivers the events
+            if (!executorService.isShutdown() && 
+                submittedTasks.get() < NUM_TASKS / 10 &&
+                events.size() % 10 == 0)
+            {
+                try
+                {
+                    executorService.submit(() -> {});
+                    submittedTasks.incrementAndGet();
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // May happen when the executor was shut down
+                }
+            }
+        }
+
+        @Override
+        public void beforeExecute(Thread t, Runnable r)
+        {
+            record(r, "beforeExecute");
+            try
+            {
+                Thread.sleep(0, 100000);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void afterExecute(Runnable r, Throwable t)
+        {
+            record(r, "afterExecute");
+            finished.incrementAndGet();
+        }
+
+        @Override
+        public void tasksFinished()
+        {
+            // Not recorded
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package de.javagl.swing.tasks.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import de.javagl.swing.tasks.SwingTask;
+import de.javagl.swing.tasks.SwingTaskExecutors;
+import de.javagl.swing.tasks.SwingTaskView;
+
+/**
+ * A stress test for the decision about showing a {@link SwingTaskView}.
+ * It executes many short tasks with timing parameters that are chosen 
+ * so that the decision to show the view and the completion of the task 
+ * frequently happen at the same time, and checks that each view is
+ * finished exactly once, and never shown after it was finished.
+ */
+public class SwingTaskExecutorStressTest
+{
+    /**
+     * The number of tasks to execute
+     */
+    private static final int NUM_TASKS = 5000;
+    
+    /**
+     * The number of threads that execute tasks concurrently
+     */
+    private static final int NUM_THREADS = 8;
+    
+    /**
+     * Entry point of this test
+     * 
+     * @param args Not used
+     * @throws Exception If the test fails unexpectedly 
+     */
+    public static void main(String[] args) throws Exception
+    {
+        List<RecordingSwingTaskView> views = 
+            new ArrayList<RecordingSwingTaskView>();
+        List<SwingTask<Integer, Void>> tasks = 
+            new ArrayList<SwingTask<Integer, Void>>();
+        ExecutorService executorService = 
+            Executors.newFixedThreadPool(NUM_THREADS);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        Random random = new Random(0);
+        for (int i = 0; i < NUM_TASKS; i++)
+        {
+            int durationMillis = random.nextInt(4);
+            int millisToDecideToPopup = random.nextInt(3);
+            int millisToPopup = random.nextInt(4);
+            RecordingSwingTaskView view = new RecordingSwingTaskView();
+            SwingTask<Integer, Void> task = createTask(durationMillis);
+            views.add(view);
+            tasks.add(task);
+            futures.add(executorService.submit(() -> 
+                SwingTaskExecutors.create(task)
+                    .setModal(false)
+                    .setMillisToDecideToPopup(millisToDecideToPopup)
+                    .setMillisToPopup(millisToPopup)
+                    .setSwingTaskViewFactory(c -> view.create())
+                    .build()
+                    .execute()));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        for (SwingTask<Integer, Void> task : tasks)
+        {
+            task.get();
+        }
+        executorService.shutdown();
+        
+        // Make sure that all pending view notifications have been processed
+        SwingUtilities.invokeAndWait(() -> {});
+        SwingUtilities.invokeAndWait(() -> {});
+        
+        int shown = 0;
+        int errors = 0;
+        for (int i = 0; i < views.size(); i++)
+        {
+            RecordingSwingTaskView view = views.get(i);
+            if (view.shown.get() > 0)
+            {
+                shown++;
+            }
+            String error = view.validate();
+            if (error != null)
+            {
+                System.err.println("Task " + i + ": " + error);
+                errors++;
+            }
+        }
+        System.out.println("Executed " + NUM_TASKS + " tasks, " 
+            + shown + " views have been shown, " + errors + " errors");
+        System.exit(errors == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Create a task that takes the given time and reports its progress
+     * 
+     * @param durationMillis The duration of the task
+     * @return The task
+     */
+    private static SwingTask<Integer, Void> createTask(int durationMillis)
+    {
+        return new SwingTask<Integer, Void>()
+        {
+            @Override
+            protected Integer doInBackground() throws Exception
+            {
+                long end = System.nanoTime() + durationMillis * 1000000L;
+                int steps = 0;
+                while (System.nanoTime() < end)
+                {
+                    steps++;
+                    setProgress(Math.min(1.0, steps / 1000.0));
+                }
+                return steps;
+            }
+        };
+    }
+    
+    /**
+     * Implementation of a {@link SwingTaskView} that records the calls
+     * to its methods
+     */
+    private static class RecordingSwingTaskView implements SwingTaskView
+    {
+        /**
+         * The number of times that the view was created by the factory
+         */
+        private final AtomicInteger created = new AtomicInteger();
+        
+        /**
+         * The number of times that the view was shown
+         */
+        private final AtomicInteger shown = new AtomicInteger();
+        
+        /**
+         * The number of times that the view was finished
+         */
+        private final AtomicInteger finished = new AtomicInteger();
+        
+        /**
+         * The number of times that the view was shown after it was finished
+         */
+        private final AtomicInteger shownAfterFinished = new AtomicInteger();
+        
+        /**
+         * The number of calls that happened outside of the Event 
+         * Dispatch Thread
+         */
+        private final AtomicInteger callsOutsideEdt = new AtomicInteger();
+        
+        /**
+         * Count the creation of this view by the view factory
+         * 
+         * @return This view
+         */
+        RecordingSwingTaskView create()
+        {
+            created.incrementAndGet();
+            return this;
+        }
+        
+        @Override
+        public void show()
+        {
+            checkEdt();
+            if (finished.get() > 0)
+            {
+                shownAfterFinished.incrementAndGet();
+            }
+            shown.incrementAndGet();
+        }
+
+        @Override
+        public void setProgress(double progress)
+        {
+            checkEdt();
+        }
+
+        @Override
+        public void setMessage(String message)
+        {
+            checkEdt();
+        }
+
+        @Override
+        public void taskFinished(Throwable t)
+        {
+            checkEdt();
+            finished.incrementAndGet();
+        }
+        
+        /**
+         * Count a call that happened outside of the Event Dispatch Thread
+         */
+        private void checkEdt()
+        {
+            if (!SwingUtilities.isEventDispatchThread())
+            {
+                callsOutsideEdt.incrementAndGet();
+            }
+        }
+        
+        /**
+         * Returns an error message if the recorded calls are not valid,
+         * or <code>null</code> if they are valid
+         * 
+         * @return The error message
+         */
+        String validate()
+        {
+            if (created.get() > 1)
+            {
+                return "Created " + created.get() + " times";
+            }
+            if (created.get() == 1 && finished.get() != 1)
+            {
+                return "Created, but finished " + finished.get() + " times";
+            }
+            if (created.get() == 0 && finished.get() > 0)
+            {
+                return "Finished without being created";
+            }
+            // Views are only created when they are shown
+            if (shown.get() == 0 && created.get() > 0)
+            {
+                return "Created without being shown";
+            }
+            if (shown.get() > created.get())
+            {
+                return "Shown without being created";
+            }
+            if (shown.get() > 1)
+            {
+                return "Shown " + shown.get() + " times";
+            }
+            if (shownAfterFinished.get() > 0)
+            {
+                return "Shown after being finished";
+            }
+            if (callsOutsideEdt.get() > 0)
+            {
+                return "Called outside of the Event Dispatch Thread";
+            }
+            return null;
+        }
+    }
+}